@@ -34,6 +34,8 @@ public class SecurityConfig {
         corsConfig.setAllowedOriginPatterns(List.of("*"));
         corsConfig.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         corsConfig.setAllowedHeaders(List.of("*"));
+        // Continuation of the legacy comment lists (see CommentController in comment-service)
+        corsConfig.setExposedHeaders(List.of("Link", "X-Next-Cursor"));
         corsConfig.setAllowCredentials(true);
         corsConfig.setMaxAge(3600L);
 
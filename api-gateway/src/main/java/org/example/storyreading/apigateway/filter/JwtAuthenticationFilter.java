@@ -42,6 +42,9 @@ public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
             "/api/user" // Cho phép đọc thông tin user công khai (để hiển thị tên/avatar trong comment)
     );
 
+    // Header định danh chỉ được lấy từ token đã xác thực; bản client tự gửi lên luôn bị xóa
+    private static final List<String> IDENTITY_HEADERS = List.of("X-User-Id", "X-User-Role", "X-Username");
+
     //ham kiem tra public get endpoint
     private boolean isPublicGetEndpoint(String path) {
         return PUBLIC_GET_ENDPOINTS.stream().anyMatch(path::startsWith);
@@ -53,7 +56,10 @@ public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> IDENTITY_HEADERS.forEach(headers::remove))
+                .build();
+        exchange = exchange.mutate().request(request).build();
         String path = request.getURI().getPath();
 
         // Cho phép các endpoint public
@@ -98,9 +104,10 @@ public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
             }
         }
 
-        // Cho phép các GET request đến public GET endpoints mà không cần xác thực
+        // Cho phép các GET request đến public GET endpoints mà không cần xác thực;
+        // nếu có token hợp lệ thì vẫn gắn X-User-Id để service trả dữ liệu theo người xem (vd. myReaction)
         if (method.name().equalsIgnoreCase("GET") && isPublicGetEndpoint(path)) {
-            return chain.filter(exchange);
+            return chain.filter(withOptionalUser(exchange, request));
         }
 
         // Kiểm tra token cho các endpoint khác
@@ -164,6 +171,32 @@ public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
         }
     }
 
+    // Token thiếu, sai hoặc hết hạn không chặn request public: request đi tiếp như khách (không có X-User-Id)
+    private ServerWebExchange withOptionalUser(ServerWebExchange exchange, ServerHttpRequest request) {
+        String authHeader = request.getHeaders().getFirst("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return exchange;
+        }
+        String token = authHeader.substring(7);
+        if (!jwtUtils.validateToken(token)) {
+            return exchange;
+        }
+        try {
+            Long userId = jwtUtils.extractUserId(token);
+            String role = jwtUtils.extractRole(token);
+            String username = jwtUtils.extractUsername(token);
+
+            ServerHttpRequest modifiedRequest = request.mutate()
+                    .header("X-User-Id", userId != null ? userId.toString() : "")
+                    .header("X-User-Role", role != null ? role : "")
+                    .header("X-Username", username != null ? username : "")
+                    .build();
+            return exchange.mutate().request(modifiedRequest).build();
+        } catch (Exception e) {
+            return exchange;
+        }
+    }
+
     private boolean isPublicEndpoint(String path) {
         return PUBLIC_ENDPOINTS.stream().anyMatch(path::startsWith);
     }
@@ -0,0 +1,21 @@
+-- SQL: composite indexes for the keyset-paginated comment feeds
+-- Run this against your Postgres database for the comment-service schema
+
+-- 1) Chapter feed: WHERE story_id = ? AND chapter_id = ? AND is_deleted = 'No'
+--    AND (created_at, id) > cursor ORDER BY created_at, id LIMIT n
+CREATE INDEX IF NOT EXISTS idx_comments_chapter_feed
+    ON comments (story_id, chapter_id, is_deleted, created_at, id);
+
+-- 2) Story-level root comments: chapter_id IS NULL AND parent_id IS NULL, so replies are never read
+CREATE INDEX IF NOT EXISTS idx_comments_story_root_feed
+    ON comments (story_id, is_deleted, created_at, id)
+    WHERE chapter_id IS NULL AND parent_id IS NULL;
+
+-- 3) Reply listing (findByParentIdAndIsDeleted)
+CREATE INDEX IF NOT EXISTS idx_comments_parent_id ON comments (parent_id, is_deleted);
+
+-- 4) Each page should be an Index Scan stopping after LIMIT rows, with no Sort node
+-- EXPLAIN ANALYZE SELECT * FROM comments
+-- WHERE story_id = 1 AND chapter_id = 1 AND is_deleted = 'No'
+--   AND created_at >= '2025-01-01' AND (created_at > '2025-01-01' OR id > 100)
+-- ORDER BY created_at, id LIMIT 21;
@@ -0,0 +1,31 @@
+-- SQL: materialized path on comments so a whole thread is one index range scan
+-- Run this against your Postgres database for the comment-service schema
+-- path lists the ancestor ids: root = '/', reply to 12 = '/12/', reply to 34 under 12 = '/12/34/'
+
+-- 1) Column with byte-order collation, so '/12/' .. '/120' is exactly the subtree of comment 12
+--    (Hibernate ddl-auto=update creates the same; IF NOT EXISTS keeps this idempotent)
+ALTER TABLE comments ADD COLUMN IF NOT EXISTS path TEXT COLLATE "C";
+
+-- 2) Backfill existing comments from parent_id (comments whose parent row is missing become roots)
+WITH RECURSIVE tree AS (
+    SELECT c.id, '/'::text AS path
+    FROM comments c
+    WHERE c.parent_id IS NULL
+       OR NOT EXISTS (SELECT 1 FROM comments p WHERE p.id = c.parent_id)
+    UNION ALL
+    SELECT c.id, t.path || t.id || '/'
+    FROM comments c
+    JOIN tree t ON c.parent_id = t.id
+)
+UPDATE comments c
+SET path = tree.path
+FROM tree
+WHERE c.id = tree.id AND c.path IS NULL;
+
+-- 3) Range index for thread loads and subtree deletes
+CREATE INDEX IF NOT EXISTS idx_comments_path ON comments (path);
+
+-- 4) Thread of comment 12 should be an Index Scan on idx_comments_path
+-- EXPLAIN ANALYZE SELECT * FROM comments WHERE path >= '/12/' AND path < '/120' AND is_deleted = 'No';
+-- Rows still without a path (should be 0)
+-- SELECT count(*) FROM comments WHERE path IS NULL;
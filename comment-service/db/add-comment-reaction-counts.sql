@@ -0,0 +1,42 @@
+-- SQL: per-comment reaction counters, maintained by ReactionServiceImpl in the same transaction as the reaction row
+-- Run this against your Postgres database for the comment-service schema
+
+-- 1) Counter table (Hibernate ddl-auto=update creates the same; IF NOT EXISTS keeps this idempotent)
+CREATE TABLE IF NOT EXISTS comment_reaction_counts (
+    comment_id  BIGINT PRIMARY KEY,
+    like_count  BIGINT NOT NULL DEFAULT 0,
+    tym_count   BIGINT NOT NULL DEFAULT 0,
+    haha_count  BIGINT NOT NULL DEFAULT 0,
+    sad_count   BIGINT NOT NULL DEFAULT 0,
+    angry_count BIGINT NOT NULL DEFAULT 0,
+    wow_count   BIGINT NOT NULL DEFAULT 0
+);
+
+-- 2) Index used by the GROUP BY rebuild and by reaction lookups per comment
+CREATE INDEX IF NOT EXISTS idx_reaction_comment_id ON reaction (comment_id);
+
+-- 3) Backfill / full rebuild in one GROUP BY pass (safe to re-run; overwrites drifted counters)
+INSERT INTO comment_reaction_counts (comment_id, like_count, tym_count, haha_count, sad_count, angry_count, wow_count)
+SELECT r.comment_id,
+       COUNT(*) FILTER (WHERE r.type = 'LIKE'),
+       COUNT(*) FILTER (WHERE r.type = 'TYM'),
+       COUNT(*) FILTER (WHERE r.type = 'HAHA'),
+       COUNT(*) FILTER (WHERE r.type = 'SAD'),
+       COUNT(*) FILTER (WHERE r.type = 'ANGRY'),
+       COUNT(*) FILTER (WHERE r.type = 'WOW')
+FROM reaction r
+GROUP BY r.comment_id
+ON CONFLICT (comment_id) DO UPDATE SET
+    like_count  = EXCLUDED.like_count,
+    tym_count   = EXCLUDED.tym_count,
+    haha_count  = EXCLUDED.haha_count,
+    sad_count   = EXCLUDED.sad_count,
+    angry_count = EXCLUDED.angry_count,
+    wow_count   = EXCLUDED.wow_count;
+
+-- 4) Drift check: counters that disagree with the reaction table (should return no rows)
+-- SELECT c.comment_id, c.like_count, x.likes
+-- FROM comment_reaction_counts c
+-- LEFT JOIN (SELECT comment_id, COUNT(*) FILTER (WHERE type = 'LIKE') AS likes FROM reaction GROUP BY comment_id) x
+--        ON x.comment_id = c.comment_id
+-- WHERE c.like_count <> COALESCE(x.likes, 0);
@@ -0,0 +1,12 @@
+-- SQL: index for the "my reaction" lookup embedded in comment listings
+-- Run this against your Postgres database for the comment-service schema
+
+-- 1) One probe per listed comment: reaction WHERE comment_id = ? AND user_id = <viewer>
+CREATE INDEX IF NOT EXISTS idx_reaction_user_comment ON reaction (user_id, comment_id);
+
+-- 2) A page of summaries should use the counters primary key and this index, not a scan of reaction
+-- EXPLAIN ANALYZE
+-- SELECT ids.id, c.like_count,
+--        (SELECT r.type FROM reaction r WHERE r.comment_id = ids.id AND r.user_id = 1 LIMIT 1)
+-- FROM unnest(ARRAY[1,2,3]::bigint[]) AS ids(id)
+-- LEFT JOIN comment_reaction_counts c ON c.comment_id = ids.id;
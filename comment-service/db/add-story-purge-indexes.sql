@@ -0,0 +1,13 @@
+-- SQL: indexes used by the set-based purge when a story is deleted (CommentServiceImpl.deleteCommentsByStoryId)
+-- Run this against your Postgres database for the comment-service schema
+
+-- 1) DELETE FROM rating WHERE story_id = ?
+CREATE INDEX IF NOT EXISTS idx_rating_story_id ON rating (story_id);
+
+-- 2) Comment ids of the story come from idx_comments_chapter_feed (story_id leading column);
+--    reactions and counters are removed via idx_reaction_comment_id and the counters primary key.
+
+-- 3) Check the purge plan for a large story (run inside a transaction and roll back)
+-- BEGIN;
+-- EXPLAIN ANALYZE UPDATE comments SET is_deleted = 'Yes' WHERE story_id = 1 AND is_deleted = 'No';
+-- ROLLBACK;
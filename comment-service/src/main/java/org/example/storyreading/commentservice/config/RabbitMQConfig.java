@@ -25,6 +25,8 @@ public class RabbitMQConfig {
     public static final String COMMENT_ROUTING_KEY = "comment.created";
     public static final String COMMENT_DELETE_QUEUE = "comment-delete-queue";
     public static final String COMMENT_DELETE_ROUTING_KEY = "comment.deleted";
+    public static final String STORY_PURGE_QUEUE = "story-purge-queue";
+    public static final String STORY_PURGE_ROUTING_KEY = "story.purged";
 
     // === REACTION ===
     public static final String REACTION_EXCHANGE = "reaction-exchange";
@@ -66,6 +68,16 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(commentDeleteQueue).to(commentExchange).with(COMMENT_DELETE_ROUTING_KEY);
     }
 
+    @Bean
+    public Queue storyPurgeQueue() {
+        return new Queue(STORY_PURGE_QUEUE, true);
+    }
+
+    @Bean
+    public Binding storyPurgeBinding(Queue storyPurgeQueue, TopicExchange commentExchange) {
+        return BindingBuilder.bind(storyPurgeQueue).to(commentExchange).with(STORY_PURGE_ROUTING_KEY);
+    }
+
     // === REACTION BINDINGS ===
     @Bean
     public Queue reactionQueue() {
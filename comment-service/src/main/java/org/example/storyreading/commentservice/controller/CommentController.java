@@ -1,21 +1,28 @@
 package org.example.storyreading.commentservice.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.storyreading.commentservice.dto.comment.CommentPage;
 import org.example.storyreading.commentservice.dto.comment.CommentRequest;
 import org.example.storyreading.commentservice.dto.comment.CommentResponse;
 import org.example.storyreading.commentservice.entity.Comment;
 import org.example.storyreading.commentservice.service.CommentService;
+import org.example.storyreading.commentservice.util.CommentCursor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/comments")
 @RequiredArgsConstructor
 public class CommentController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final CommentService commentService;
 
     @PostMapping
@@ -23,10 +30,23 @@ public class CommentController {
         return commentService.createComment(request);
     }
 
+    // Danh sách cũ: tối đa LEGACY_LIST_LIMIT comment; nếu còn nữa thì Link rel="next" / X-Next-Cursor trỏ tới endpoint /page
     @GetMapping("/chapter/{chapterId}/story/{storyId}")
-    public List<CommentResponse> getComments(@PathVariable Long chapterId, @PathVariable Long storyId) {
-        return commentService.getCommentsByChapterAndStory(chapterId,storyId);
+    public ResponseEntity<List<CommentResponse>> getComments(@PathVariable Long chapterId, @PathVariable Long storyId,
+                                                             @RequestHeader(value = "X-User-Id", required = false) Long viewerId) {
+        List<CommentResponse> comments = commentService.getCommentsByChapterAndStory(chapterId, storyId, viewerId);
+        return legacyList(comments, CommentResponse::getCreatedAt, CommentResponse::getId,
+                "/api/comments/chapter/" + chapterId + "/story/" + storyId + "/page");
+    }
+    // Phân trang theo cursor; truyền nextCursor của trang trước để lấy tiếp
+    @GetMapping("/chapter/{chapterId}/story/{storyId}/page")
+    public ResponseEntity<CommentPage> getCommentPage(@PathVariable Long chapterId, @PathVariable Long storyId,
+                                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                                      @RequestParam(value = "size", defaultValue = "20") int size,
+                                                      @RequestHeader(value = "X-User-Id", required = false) Long viewerId) {
+        return ResponseEntity.ok(commentService.getCommentPageByChapterAndStory(chapterId, storyId, cursor, size, viewerId));
     }
+
     // sửa nội dung bình luận
     @PutMapping("/{id}")
     public ResponseEntity<Comment> updateComment(@PathVariable Long id,
@@ -59,14 +79,42 @@ public class CommentController {
     @GetMapping("/story/{storyId}/root")
     public ResponseEntity<List<Comment>> getRootCommentsByStoryId(@PathVariable Long storyId) {
         List<Comment> rootComments = commentService.getRootCommentsByStoryId(storyId);
-        return ResponseEntity.ok(rootComments);
+        return legacyList(rootComments, Comment::getCreatedAt, Comment::getId, "/api/comments/story/" + storyId + "/root/page");
+    }
+
+    @GetMapping("/story/{storyId}/root/page")
+    public ResponseEntity<CommentPage> getRootCommentPage(@PathVariable Long storyId,
+                                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                                          @RequestParam(value = "size", defaultValue = "20") int size,
+                                                          @RequestHeader(value = "X-User-Id", required = false) Long viewerId) {
+        return ResponseEntity.ok(commentService.getRootCommentPageByStoryId(storyId, cursor, size, viewerId));
     }
 
     @GetMapping("/parent/{parentId}/replies")
-    public ResponseEntity<List<CommentResponse>> getRepliesByParentId(@PathVariable Long parentId) {
-        List<CommentResponse> replies = commentService.getRepliesByParentId(parentId);
+    public ResponseEntity<List<CommentResponse>> getRepliesByParentId(@PathVariable Long parentId,
+                                                                      @RequestHeader(value = "X-User-Id", required = false) Long viewerId) {
+        List<CommentResponse> replies = commentService.getRepliesByParentId(parentId, viewerId);
         return ResponseEntity.ok(replies);
     }
-}
 
+    // toàn bộ thread của một comment (mọi cấp reply)
+    @GetMapping("/{id}/thread")
+    public ResponseEntity<List<CommentResponse>> getThread(@PathVariable Long id,
+                                                           @RequestHeader(value = "X-User-Id", required = false) Long viewerId) {
+        return ResponseEntity.ok(commentService.getThread(id, viewerId));
+    }
 
+    // Danh sách bị cắt ở LEGACY_LIST_LIMIT: gắn cursor của comment cuối để client đọc tiếp qua endpoint phân trang
+    private static <T> ResponseEntity<List<T>> legacyList(List<T> items, Function<T, LocalDateTime> createdAt,
+                                                          Function<T, Long> id, String pagePath) {
+        if (items.size() < CommentService.LEGACY_LIST_LIMIT) {
+            return ResponseEntity.ok(items);
+        }
+        T last = items.get(items.size() - 1);
+        String cursor = new CommentCursor(createdAt.apply(last), id.apply(last)).encode();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + pagePath + "?cursor=" + cursor + ">; rel=\"next\"")
+                .header(NEXT_CURSOR_HEADER, cursor)
+                .body(items);
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.storyreading.commentservice.dto.comment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CommentPage {
+    private List<CommentResponse> items;
+    private String nextCursor; // truyền lại để lấy trang tiếp theo; null khi hết
+    private boolean hasMore;
+}
@@ -21,5 +21,14 @@ public class CommentResponse {
     private Long storyAuthorId;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+
+    // Số lượng từng loại reaction và reaction của người đang xem (chỉ có trong danh sách comment)
+    private Long likeCount;
+    private Long tymCount;
+    private Long hahaCount;
+    private Long sadCount;
+    private Long angryCount;
+    private Long wowCount;
+    private String myReaction;
 }
 
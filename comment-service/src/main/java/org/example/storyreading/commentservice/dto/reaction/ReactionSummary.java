@@ -0,0 +1,13 @@
+package org.example.storyreading.commentservice.dto.reaction;
+
+// Số lượng reaction của một comment kèm reaction của người đang xem (null nếu chưa react / chưa đăng nhập)
+public interface ReactionSummary {
+    Long getCommentId();
+    Long getLikeCount();
+    Long getTymCount();
+    Long getHahaCount();
+    Long getSadCount();
+    Long getAngryCount();
+    Long getWowCount();
+    String getMyReaction();
+}
@@ -28,6 +28,11 @@ public class Comment {
     @Column(name = "parent_id")
     private Long parentId;
 
+    // Materialized path các comment tổ tiên: root = "/", reply của 12 = "/12/", reply của 34 (con của 12) = "/12/34/".
+    // Collation "C" để so sánh theo byte: cả cây con của một comment là một khoảng liên tục trên index.
+    @Column(name = "path", columnDefinition = "TEXT COLLATE \"C\"")
+    private String path;
+
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
@@ -52,6 +57,33 @@ public class Comment {
         if (isDeleted == null) {
             isDeleted = "No";
         }
+        if (path == null) {
+            path = ROOT_PATH;
+        }
+    }
+
+    public static final String ROOT_PATH = "/";
+
+    // Dòng cũ chưa được backfill bởi db/add-comment-path.sql có path = null
+    public boolean hasPath() {
+        return path != null;
+    }
+
+    // Path của các reply trực tiếp; mọi comment trong cây con có path bắt đầu bằng chuỗi này
+    public String subtreePath() {
+        return requirePath() + id + "/";
+    }
+
+    // Cận trên (không bao gồm) của khoảng path của cây con: '0' là ký tự ngay sau '/'
+    public String subtreePathUpperBound() {
+        return requirePath() + id + "0";
+    }
+
+    private String requirePath() {
+        if (path == null) {
+            throw new IllegalStateException("Comment " + id + " chưa có path, cần chạy db/add-comment-path.sql");
+        }
+        return path;
     }
 }
 
@@ -0,0 +1,55 @@
+package org.example.storyreading.commentservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.storyreading.commentservice.entity.Reaction.ReactionType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Số lượng reaction của một comment, cập nhật cùng transaction với bảng reaction
+@Entity
+@Table(name = "comment_reaction_counts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CommentReactionCount {
+    @Id
+    @Column(name = "comment_id")
+    private Long commentId;
+    @Column(name = "like_count", nullable = false)
+    private long likeCount;
+    @Column(name = "tym_count", nullable = false)
+    private long tymCount;
+    @Column(name = "haha_count", nullable = false)
+    private long hahaCount;
+    @Column(name = "sad_count", nullable = false)
+    private long sadCount;
+    @Column(name = "angry_count", nullable = false)
+    private long angryCount;
+    @Column(name = "wow_count", nullable = false)
+    private long wowCount;
+
+    public long countOf(ReactionType type) {
+        return switch (type) {
+            case LIKE -> likeCount;
+            case TYM -> tymCount;
+            case HAHA -> hahaCount;
+            case SAD -> sadCount;
+            case ANGRY -> angryCount;
+            case WOW -> wowCount;
+        };
+    }
+
+    public Map<ReactionType, Long> toMap() {
+        Map<ReactionType, Long> counts = new EnumMap<>(ReactionType.class);
+        for (ReactionType type : ReactionType.values()) {
+            counts.put(type, countOf(type));
+        }
+        return counts;
+    }
+}
@@ -11,6 +11,7 @@ public class CommentDeletedEvent implements Serializable {
 
     private List<Long> reactionIds;
     private Long commentId;
+    private List<Long> commentIds; // commentId và toàn bộ reply bên dưới bị xóa cùng lúc
 
     public CommentDeletedEvent() {}
 
@@ -19,6 +20,12 @@ public class CommentDeletedEvent implements Serializable {
         this.commentId = commentId;
     }
 
+    public CommentDeletedEvent(Long commentId, List<Long> commentIds, List<Long> reactionIds) {
+        this.reactionIds = reactionIds;
+        this.commentId = commentId;
+        this.commentIds = commentIds;
+    }
+
     public Long getCommentId() {
         return commentId;
     }
@@ -26,6 +33,12 @@ public class CommentDeletedEvent implements Serializable {
     public void setCommentId(Long commentId) {
         this.commentId = commentId;
     }
+    public List<Long> getCommentIds() {
+        return commentIds;
+    }
+    public void setCommentIds(List<Long> commentIds) {
+        this.commentIds = commentIds;
+    }
     public List<Long> getReactionIds() {
         return reactionIds;
     }
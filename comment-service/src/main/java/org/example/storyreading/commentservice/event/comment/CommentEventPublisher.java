@@ -34,6 +34,16 @@ public class CommentEventPublisher {
         );
         System.out.println("🗑 Sent comment delete event: " + event.getCommentId());
     }
-}
-
 
+    public void publishStoryPurgedEvent(StoryPurgedEvent event) {
+        rabbitTemplate.convertAndSend(
+                RabbitMQConfig.COMMENT_EXCHANGE,
+                RabbitMQConfig.STORY_PURGE_ROUTING_KEY,
+                event
+        );
+        System.out.println("🗑 Sent story purge event: storyId=" + event.getStoryId()
+                + ", comments=" + event.getCommentIds().size()
+                + ", reactions=" + event.getReactionIds().size()
+                + ", ratings=" + event.getRatingIds().size());
+    }
+}
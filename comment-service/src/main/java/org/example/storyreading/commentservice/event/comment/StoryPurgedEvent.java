@@ -0,0 +1,38 @@
+package org.example.storyreading.commentservice.event.comment;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+// Một event cho cả truyện bị xóa: thay cho từng CommentDeletedEvent / RatingDeletedEvent
+public class StoryPurgedEvent implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Long storyId;
+    private List<Long> commentIds;
+    private List<Long> reactionIds;
+    private List<Long> ratingIds;
+
+    public StoryPurgedEvent() {}
+
+    public StoryPurgedEvent(Long storyId, List<Long> commentIds, List<Long> reactionIds, List<Long> ratingIds) {
+        this.storyId = storyId;
+        this.commentIds = commentIds;
+        this.reactionIds = reactionIds;
+        this.ratingIds = ratingIds;
+    }
+
+    public Long getStoryId() { return storyId; }
+    public void setStoryId(Long storyId) { this.storyId = storyId; }
+
+    public List<Long> getCommentIds() { return commentIds; }
+    public void setCommentIds(List<Long> commentIds) { this.commentIds = commentIds; }
+
+    public List<Long> getReactionIds() { return reactionIds; }
+    public void setReactionIds(List<Long> reactionIds) { this.reactionIds = reactionIds; }
+
+    public List<Long> getRatingIds() { return ratingIds; }
+    public void setRatingIds(List<Long> ratingIds) { this.ratingIds = ratingIds; }
+}
@@ -0,0 +1,91 @@
+package org.example.storyreading.commentservice.repository;
+
+import org.example.storyreading.commentservice.dto.reaction.ReactionSummary;
+import org.example.storyreading.commentservice.entity.CommentReactionCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CommentReactionCountRepository extends JpaRepository<CommentReactionCount, Long> {
+
+    // +1 cho loại mới, -1 cho loại cũ (null = không có) trong một câu UPDATE; trả về 0 nếu comment chưa có dòng đếm
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE comment_reaction_counts SET
+                like_count  = GREATEST(like_count  + (CASE WHEN CAST(:added AS varchar) = 'LIKE'  THEN 1 ELSE 0 END) - (CASE WHEN CAST(:removed AS varchar) = 'LIKE'  THEN 1 ELSE 0 END), 0),
+                tym_count   = GREATEST(tym_count   + (CASE WHEN CAST(:added AS varchar) = 'TYM'   THEN 1 ELSE 0 END) - (CASE WHEN CAST(:removed AS varchar) = 'TYM'   THEN 1 ELSE 0 END), 0),
+                haha_count  = GREATEST(haha_count  + (CASE WHEN CAST(:added AS varchar) = 'HAHA'  THEN 1 ELSE 0 END) - (CASE WHEN CAST(:removed AS varchar) = 'HAHA'  THEN 1 ELSE 0 END), 0),
+                sad_count   = GREATEST(sad_count   + (CASE WHEN CAST(:added AS varchar) = 'SAD'   THEN 1 ELSE 0 END) - (CASE WHEN CAST(:removed AS varchar) = 'SAD'   THEN 1 ELSE 0 END), 0),
+                angry_count = GREATEST(angry_count + (CASE WHEN CAST(:added AS varchar) = 'ANGRY' THEN 1 ELSE 0 END) - (CASE WHEN CAST(:removed AS varchar) = 'ANGRY' THEN 1 ELSE 0 END), 0),
+                wow_count   = GREATEST(wow_count   + (CASE WHEN CAST(:added AS varchar) = 'WOW'   THEN 1 ELSE 0 END) - (CASE WHEN CAST(:removed AS varchar) = 'WOW'   THEN 1 ELSE 0 END), 0)
+            WHERE comment_id = :commentId
+            """, nativeQuery = true)
+    int applyDelta(@Param("commentId") Long commentId,
+                   @Param("added") String added,
+                   @Param("removed") String removed);
+
+    // Fallback: dựng lại dòng đếm từ bảng reaction bằng một câu GROUP BY.
+    // DO NOTHING khi transaction khác vừa tạo dòng, lúc đó người gọi chạy lại applyDelta.
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO comment_reaction_counts
+                (comment_id, like_count, tym_count, haha_count, sad_count, angry_count, wow_count)
+            SELECT r.comment_id,
+                   COUNT(*) FILTER (WHERE r.type = 'LIKE'),
+                   COUNT(*) FILTER (WHERE r.type = 'TYM'),
+                   COUNT(*) FILTER (WHERE r.type = 'HAHA'),
+                   COUNT(*) FILTER (WHERE r.type = 'SAD'),
+                   COUNT(*) FILTER (WHERE r.type = 'ANGRY'),
+                   COUNT(*) FILTER (WHERE r.type = 'WOW')
+            FROM reaction r
+            WHERE r.comment_id = :commentId
+            GROUP BY r.comment_id
+            ON CONFLICT (comment_id) DO NOTHING
+            """, nativeQuery = true)
+    int rebuildFromReactions(@Param("commentId") Long commentId);
+
+    // Giống rebuildFromReactions cho cả một trang: dựng dòng đếm còn thiếu (dữ liệu cũ chưa backfill) trước findSummaries,
+    // để danh sách và /api/reaction luôn ra cùng một con số
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO comment_reaction_counts
+                (comment_id, like_count, tym_count, haha_count, sad_count, angry_count, wow_count)
+            SELECT r.comment_id,
+                   COUNT(*) FILTER (WHERE r.type = 'LIKE'),
+                   COUNT(*) FILTER (WHERE r.type = 'TYM'),
+                   COUNT(*) FILTER (WHERE r.type = 'HAHA'),
+                   COUNT(*) FILTER (WHERE r.type = 'SAD'),
+                   COUNT(*) FILTER (WHERE r.type = 'ANGRY'),
+                   COUNT(*) FILTER (WHERE r.type = 'WOW')
+            FROM reaction r
+            WHERE r.comment_id = ANY(CAST(:commentIds AS bigint[]))
+              AND NOT EXISTS (SELECT 1 FROM comment_reaction_counts c WHERE c.comment_id = r.comment_id)
+            GROUP BY r.comment_id
+            ON CONFLICT (comment_id) DO NOTHING
+            """, nativeQuery = true)
+    int rebuildMissingFromReactions(@Param("commentIds") Long[] commentIds);
+
+    // Bộ đếm + reaction của người xem cho cả một trang comment trong một câu query
+    @Query(value = """
+            SELECT ids.id AS "commentId",
+                   COALESCE(c.like_count, 0)  AS "likeCount",
+                   COALESCE(c.tym_count, 0)   AS "tymCount",
+                   COALESCE(c.haha_count, 0)  AS "hahaCount",
+                   COALESCE(c.sad_count, 0)   AS "sadCount",
+                   COALESCE(c.angry_count, 0) AS "angryCount",
+                   COALESCE(c.wow_count, 0)   AS "wowCount",
+                   (SELECT r.type FROM reaction r
+                    WHERE r.comment_id = ids.id AND r.user_id = CAST(:viewerId AS bigint)
+                    LIMIT 1) AS "myReaction"
+            FROM unnest(CAST(:commentIds AS bigint[])) AS ids(id)
+            LEFT JOIN comment_reaction_counts c ON c.comment_id = ids.id
+            """, nativeQuery = true)
+    List<ReactionSummary> findSummaries(@Param("commentIds") Long[] commentIds, @Param("viewerId") Long viewerId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM comment_reaction_counts WHERE comment_id = ANY(CAST(:commentIds AS bigint[]))", nativeQuery = true)
+    int deleteByCommentIds(@Param("commentIds") Long[] commentIds);
+}
@@ -1,29 +1,75 @@
 package org.example.storyreading.commentservice.repository;
 
 import org.example.storyreading.commentservice.entity.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     // chỉ lấy các bình luận chưa bị xóa hoặc chặn
     List<Comment> findByChapterIdAndIsDeletedOrderByCreatedAtAsc(Long chapterId, String isDeleted);
-    List<Comment> findByChapterIdAndStoryIdAndIsDeletedOrderByCreatedAtAsc(Long chapterId, Long storyId, String isDeleted);
     // Lấy userId của chủ bình luận theo commentId
     @Query("SELECT c.userId FROM Comment c WHERE c.id = :commentId")
     Long findUserIdByCommentId(Long commentId);
-    // ✅ Lấy tất cả bình luận theo storyId (chưa bị xóa mềm)
-    List<Comment> findByStoryIdAndIsDeletedOrderByCreatedAtAsc(Long storyId, String isDeleted);
+    // ✅ Lấy id tất cả bình luận theo storyId (chưa bị xóa mềm)
+    @Query("SELECT c.id FROM Comment c WHERE c.storyId = :storyId AND c.isDeleted = :isDeleted")
+    List<Long> findIdsByStoryIdAndIsDeleted(@Param("storyId") Long storyId, @Param("isDeleted") String isDeleted);
     // Lấy danh sách comment theo parentId
     List<Comment> findByParentId(Long parentId);
     // Lấy các comment con theo parentId và chưa xóa
     List<Comment> findByParentIdAndIsDeleted(Long parentId, String isDeleted);
     // Nếu chỉ cần commentId
     List<Long> findIdByParentId(Long parentId);
-    // Lấy tất cả comment chưa xóa theo storyId và chapterId = null
-    List<Comment> findByStoryIdAndChapterIdIsNullAndIsDeletedOrderByCreatedAtAsc(Long storyId, String isDeleted);
-}
+    // Cây con theo materialized path: một range scan trên idx_comments_path (from = subtreePath, to = upper bound)
+    @Query("SELECT c FROM Comment c WHERE c.path >= :from AND c.path < :to AND c.isDeleted = :isDeleted ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findSubtree(@Param("from") String from, @Param("to") String to, @Param("isDeleted") String isDeleted);
+
+    @Query("SELECT c.id FROM Comment c WHERE c.path >= :from AND c.path < :to AND c.isDeleted = :isDeleted")
+    List<Long> findSubtreeIds(@Param("from") String from, @Param("to") String to, @Param("isDeleted") String isDeleted);
+
+    // Xóa mềm nhiều comment trong một câu UPDATE
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE comments SET is_deleted = :isDeleted, updated_at = now() WHERE id = ANY(CAST(:ids AS bigint[]))",
+            nativeQuery = true)
+    int updateIsDeletedByIds(@Param("ids") Long[] ids, @Param("isDeleted") String isDeleted);
 
+    // Feed comment của chapter, cũ trước mới sau (idx_comments_chapter_feed)
+    @Query("SELECT c FROM Comment c WHERE c.storyId = :storyId AND c.chapterId = :chapterId AND c.isDeleted = :isDeleted " +
+            "ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findChapterPage(@Param("storyId") Long storyId,
+                                  @Param("chapterId") Long chapterId,
+                                  @Param("isDeleted") String isDeleted,
+                                  Pageable pageable);
 
+    // Trang tiếp theo: các comment đứng sau cursor (createdAt, id)
+    @Query("SELECT c FROM Comment c WHERE c.storyId = :storyId AND c.chapterId = :chapterId AND c.isDeleted = :isDeleted " +
+            "AND c.createdAt >= :createdAt AND (c.createdAt > :createdAt OR c.id > :id) " +
+            "ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findChapterPageAfter(@Param("storyId") Long storyId,
+                                       @Param("chapterId") Long chapterId,
+                                       @Param("isDeleted") String isDeleted,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
 
+    // Root comment của truyện (chapterId IS NULL, parentId IS NULL) lọc ngay trong SQL (idx_comments_story_root_feed)
+    @Query("SELECT c FROM Comment c WHERE c.storyId = :storyId AND c.chapterId IS NULL AND c.parentId IS NULL " +
+            "AND c.isDeleted = :isDeleted ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findRootPage(@Param("storyId") Long storyId,
+                               @Param("isDeleted") String isDeleted,
+                               Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.storyId = :storyId AND c.chapterId IS NULL AND c.parentId IS NULL " +
+            "AND c.isDeleted = :isDeleted AND c.createdAt >= :createdAt AND (c.createdAt > :createdAt OR c.id > :id) " +
+            "ORDER BY c.createdAt ASC, c.id ASC")
+    List<Comment> findRootPageAfter(@Param("storyId") Long storyId,
+                                    @Param("isDeleted") String isDeleted,
+                                    @Param("createdAt") LocalDateTime createdAt,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+}
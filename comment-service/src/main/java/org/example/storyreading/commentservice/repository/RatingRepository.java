@@ -1,8 +1,8 @@
 package org.example.storyreading.commentservice.repository;
 
-import jakarta.transaction.Transactional;
 import org.example.storyreading.commentservice.entity.Rating;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -16,9 +16,10 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
     Double getAverageRating(@Param("storyId") Long storyId);
 
     void deleteByUserIdAndStoryId(Long userId, Long storyId);
-    // ✅ Xóa tất cả rating thuộc về storyId
-    @Transactional
-    void deleteByStoryId(Long storyId);
+    // ✅ Xóa tất cả rating thuộc về storyId trong một câu DELETE (không load từng entity)
+    @Modifying
+    @Query("DELETE FROM Rating r WHERE r.storyId = :storyId")
+    int deleteByStoryId(@Param("storyId") Long storyId);
     // ✅ Lấy danh sách id của rating theo storyId
     @Query("SELECT r.id FROM Rating r WHERE r.storyId = :storyId")
     List<Long> findIdsByStoryId(@Param("storyId") Long storyId);
@@ -1,8 +1,8 @@
 package org.example.storyreading.commentservice.repository;
 
 import org.example.storyreading.commentservice.entity.Reaction;
-import org.example.storyreading.commentservice.entity.Reaction.ReactionType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -11,9 +11,14 @@ import java.util.Optional;
 
 public interface ReactionRepository extends JpaRepository<Reaction, Long> {
     Optional<Reaction> findByUserIdAndCommentId(Long userId, Long commentId);
-    long countByCommentIdAndType(Long commentId, ReactionType type);
     void deleteByUserIdAndCommentId(Long userId, Long commentId);
     // ✅ lấy danh sách id của reaction theo commentId
     @Query("SELECT r.id FROM Reaction r WHERE r.commentId = :commentId")
     List<Long> findIdsByCommentIdIn(@Param("commentId") Long commentId);
+    @Query(value = "SELECT r.id FROM reaction r WHERE r.comment_id = ANY(CAST(:commentIds AS bigint[]))", nativeQuery = true)
+    List<Long> findIdsByCommentIds(@Param("commentIds") Long[] commentIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM reaction WHERE comment_id = ANY(CAST(:commentIds AS bigint[]))", nativeQuery = true)
+    int deleteByCommentIds(@Param("commentIds") Long[] commentIds);
 }
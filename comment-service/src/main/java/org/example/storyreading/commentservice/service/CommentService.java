@@ -1,5 +1,6 @@
 package org.example.storyreading.commentservice.service;
 
+import org.example.storyreading.commentservice.dto.comment.CommentPage;
 import org.example.storyreading.commentservice.dto.comment.CommentRequest;
 import org.example.storyreading.commentservice.dto.comment.CommentResponse;
 import org.example.storyreading.commentservice.entity.Comment;
@@ -7,13 +8,20 @@ import org.example.storyreading.commentservice.entity.Comment;
 import java.util.List;
 
 public interface CommentService {
+    // Số comment tối đa của các danh sách cũ không phân trang; đủ số này thì controller trả kèm cursor trang sau
+    int LEGACY_LIST_LIMIT = 100;
+
     CommentResponse createComment(CommentRequest request);
-    List<CommentResponse> getCommentsByChapterAndStory(Long chapterId, Long storyId);
+    List<CommentResponse> getCommentsByChapterAndStory(Long chapterId, Long storyId, Long viewerId);
+    // Keyset pagination theo (createdAt, id); cursor = null cho trang đầu
+    CommentPage getCommentPageByChapterAndStory(Long chapterId, Long storyId, String cursor, int size, Long viewerId);
     Comment updateComment(Long id, String newContent);
     Comment deleteComment(Long id);
     Comment blockComment(Long id);
     void deleteCommentsByStoryId(Long storyId);
     List<Comment> getRootCommentsByStoryId(Long storyId);
-    List<CommentResponse> getRepliesByParentId(Long parentId);
+    CommentPage getRootCommentPageByStoryId(Long storyId, String cursor, int size, Long viewerId);
+    List<CommentResponse> getRepliesByParentId(Long parentId, Long viewerId);
+    List<CommentResponse> getThread(Long commentId, Long viewerId);
 }
 
@@ -4,8 +4,10 @@ package org.example.storyreading.commentservice.service;
 import org.example.storyreading.commentservice.dto.rating.RatingRequest;
 import org.example.storyreading.commentservice.dto.rating.RatingResponse;
 
+import java.util.List;
+
 public interface RatingService {
     RatingResponse rate(RatingRequest request); // thêm/sửa đánh giá
     void removeRating(Long userId, Long storyId); // hủy đánh giá
-    void deleteRatingsByStoryId(Long storyId);
+    List<Long> deleteRatingsByStoryId(Long storyId); // trả về id các rating đã xóa
 }
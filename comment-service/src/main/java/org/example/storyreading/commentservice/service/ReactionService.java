@@ -2,8 +2,10 @@ package org.example.storyreading.commentservice.service;
 
 import org.example.storyreading.commentservice.dto.reaction.ReactionRequest;
 import org.example.storyreading.commentservice.dto.reaction.ReactionResponse;
+import org.example.storyreading.commentservice.dto.reaction.ReactionSummary;
 import org.example.storyreading.commentservice.entity.Reaction;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -13,5 +15,7 @@ public interface ReactionService {
     List<Long> getReactionIdByCommentId(Long commentId);
     void removeReactionById (Long reactionId);
     Map<Reaction.ReactionType, Long> getReactionCounts(Long commentId);
+    List<Long> removeReactionsByCommentIds(Collection<Long> commentIds); // trả về id các reaction đã xóa
+    Map<Long, ReactionSummary> getReactionSummaries(Collection<Long> commentIds, Long viewerId); // theo commentId
 }
 
@@ -2,26 +2,42 @@ package org.example.storyreading.commentservice.service.impl;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.example.storyreading.commentservice.dto.comment.CommentPage;
 import org.example.storyreading.commentservice.dto.comment.CommentRequest;
 import org.example.storyreading.commentservice.dto.comment.CommentResponse;
+import org.example.storyreading.commentservice.dto.reaction.ReactionSummary;
 import org.example.storyreading.commentservice.entity.Comment;
 import org.example.storyreading.commentservice.event.comment.CommentDeletedEvent;
 import org.example.storyreading.commentservice.event.comment.CommentEventPublisher;
 import org.example.storyreading.commentservice.event.comment.CommentEvent;
+import org.example.storyreading.commentservice.event.comment.StoryPurgedEvent;
 import org.example.storyreading.commentservice.repository.CommentRepository;
 import org.example.storyreading.commentservice.service.CommentService;
+import org.example.storyreading.commentservice.util.CommentCursor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CommentServiceImpl implements CommentService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final CommentRepository commentRepository;
     private final SimpMessagingTemplate messagingTemplate; // WebSocket
     private final CommentEventPublisher eventPublisher;   // RabbitMQ
@@ -30,12 +46,11 @@ public class CommentServiceImpl implements CommentService {
 
     @Override
     public CommentResponse createComment(CommentRequest request) {
-        // Validate parentId nếu có (đảm bảo parent comment tồn tại)
+        // Validate parentId nếu có (đảm bảo parent comment tồn tại); path của reply nối tiếp path của parent
+        Comment parent = null;
         if (request.getParentId() != null) {
-            boolean parentExists = commentRepository.existsById(request.getParentId());
-            if (!parentExists) {
-                throw new RuntimeException("Parent comment không tồn tại với id: " + request.getParentId());
-            }
+            parent = commentRepository.findById(request.getParentId())
+                    .orElseThrow(() -> new RuntimeException("Parent comment không tồn tại với id: " + request.getParentId()));
             System.out.println("✅ Tạo reply cho comment id: " + request.getParentId());
         }
 
@@ -45,6 +60,7 @@ public class CommentServiceImpl implements CommentService {
                 .chapterId(request.getChapterId())
                 .userId(request.getUserId())
                 .parentId(request.getParentId())
+                .path(parent == null ? Comment.ROOT_PATH : parent.hasPath() ? parent.subtreePath() : rebuildSubtreePath(parent))
                 .content(request.getContent())
                 .build();
 
@@ -78,8 +94,8 @@ public class CommentServiceImpl implements CommentService {
         // Tạo event để gửi sang notification-service qua RabbitMQ
         // Lấy parentUserId nếu là reply
         Long parentUserId = null;
-        if (saved.getParentId() != null) {
-            parentUserId = commentRepository.findUserIdByCommentId(saved.getParentId());
+        if (parent != null) {
+            parentUserId = parent.getUserId();
             System.out.println("📝 Reply detected - ParentId: " + saved.getParentId() + ", ParentUserId: " + parentUserId);
         }
         
@@ -137,38 +153,37 @@ public class CommentServiceImpl implements CommentService {
         Comment comment = commentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy bình luận có id = " + id));
 
-        // 1. Lấy tất cả comment con (tìm theo parentId = comment.getId())
-        List<Comment> childComments = commentRepository.findByParentIdAndIsDeleted(comment.getId(), "No");
-        for (Comment child : childComments) {
-            // 2. Xóa đệ quy từng comment con
-            deleteComment(child.getId());
+        // 1. Comment và toàn bộ reply chưa xóa bên dưới: một range query trên path
+        List<Long> commentIds = new ArrayList<>();
+        commentIds.add(comment.getId());
+        if (comment.hasPath()) {
+            commentIds.addAll(commentRepository.findSubtreeIds(comment.subtreePath(), comment.subtreePathUpperBound(), "No"));
+        } else {
+            findSubtreeByParentId(comment).forEach(c -> commentIds.add(c.getId()));
         }
 
-        // 3. Xóa comment hiện tại
+        // 2. Xóa mềm cả cây bằng một câu UPDATE
+        commentRepository.updateIsDeletedByIds(commentIds.toArray(Long[]::new), "Yes");
         comment.setIsDeleted("Yes");
-        Comment saved = commentRepository.save(comment);
+        comment.setUpdatedAt(LocalDateTime.now());
 
-        // 4. Xóa reaction liên quan
-        List<Long> reactionIds = reactionService.getReactionIdByCommentId(id);
-        for (Long reactionId : reactionIds) {
-            reactionService.removeReactionById(reactionId);
-        }
+        // 3. Xóa reaction liên quan (một câu DELETE cho cả cây)
+        List<Long> reactionIds = reactionService.removeReactionsByCommentIds(commentIds);
 
-        // 5. Gửi WebSocket realtime
+        // 4. Gửi WebSocket realtime một lần cho cả cây
         Map<String, Object> payload = new HashMap<>();
         payload.put("action", "delete");
-        payload.put("comment", saved);
-        String channelId = saved.getChapterId() != null ? saved.getChapterId().toString() : "story-" + saved.getStoryId();
+        payload.put("comment", comment);
+        payload.put("commentIds", commentIds);
+        String channelId = comment.getChapterId() != null ? comment.getChapterId().toString() : "story-" + comment.getStoryId();
         messagingTemplate.convertAndSend("/topic/comments/" + channelId, payload);
 
-        // 6. Gửi event RabbitMQ
-        eventPublisher.publishCommentDeletedEvent(new CommentDeletedEvent(saved.getId(), reactionIds));
+        // 5. Gửi một event RabbitMQ cho cả cây
+        eventPublisher.publishCommentDeletedEvent(new CommentDeletedEvent(comment.getId(), commentIds, reactionIds));
 
-        return saved;
+        return comment;
     }
 
-
-
     @Transactional
     @Override
     public Comment blockComment(Long id) {
@@ -189,59 +204,186 @@ public class CommentServiceImpl implements CommentService {
         return saved;
     }
 
+    // Danh sách cũ không phân trang: giờ chỉ trả về trang đầu (tối đa LEGACY_LIST_LIMIT comment)
     @Override
-    public List<CommentResponse> getCommentsByChapterAndStory(Long chapterId, Long storyId) {
-        return commentRepository.findByChapterIdAndStoryIdAndIsDeletedOrderByCreatedAtAsc(chapterId, storyId, "No")
-                .stream()
-                .map(c -> CommentResponse.builder()
-                        .id(c.getId())
-                        .storyId(c.getStoryId())
-                        .chapterId(c.getChapterId())
-                        .userId(c.getUserId())
-                        .parentId(c.getParentId())
-                        .content(c.getContent())
-                        .createdAt(c.getCreatedAt())
-                        .build())
-                .collect(Collectors.toList());
+    public List<CommentResponse> getCommentsByChapterAndStory(Long chapterId, Long storyId, Long viewerId) {
+        return getCommentPageByChapterAndStory(chapterId, storyId, null, LEGACY_LIST_LIMIT, viewerId).getItems();
+    }
+
+    @Override
+    public CommentPage getCommentPageByChapterAndStory(Long chapterId, Long storyId, String cursor, int size, Long viewerId) {
+        int pageSize = pageSize(size);
+        // Lấy dư một dòng để biết còn trang sau hay không
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Comment> rows;
+        if (StringUtils.hasText(cursor)) {
+            CommentCursor after = CommentCursor.decode(cursor);
+            rows = commentRepository.findChapterPageAfter(storyId, chapterId, "No", after.getCreatedAt(), after.getId(), limit);
+        } else {
+            rows = commentRepository.findChapterPage(storyId, chapterId, "No", limit);
+        }
+        return toPage(rows, pageSize, viewerId);
     }
 
     @Transactional
     @Override
     // Nếu xóa truyện thì xóa hết bình luận liên quan và reaction và rating
+    // bằng vài câu lệnh theo tập trong một transaction, và chỉ gửi một event cho cả truyện
     public void deleteCommentsByStoryId(Long storyId) {
-        ratingService.deleteRatingsByStoryId(storyId);
-        List<Comment> comments = commentRepository.findByStoryIdAndIsDeletedOrderByCreatedAtAsc(storyId, "No");
-        for (Comment comment : comments) {
-            deleteComment(comment.getId());
+        List<Long> ratingIds = ratingService.deleteRatingsByStoryId(storyId);
+
+        List<Long> commentIds = commentRepository.findIdsByStoryIdAndIsDeleted(storyId, "No");
+        List<Long> reactionIds = List.of();
+        if (!commentIds.isEmpty()) {
+            commentRepository.updateIsDeletedByIds(commentIds.toArray(Long[]::new), "Yes");
+            reactionIds = reactionService.removeReactionsByCommentIds(commentIds);
         }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("action", "purge");
+        payload.put("storyId", storyId);
+        messagingTemplate.convertAndSend("/topic/comments/story-" + storyId, payload);
+
+        eventPublisher.publishStoryPurgedEvent(new StoryPurgedEvent(storyId, commentIds, reactionIds, ratingIds));
     }
 
     @Override
     public List<Comment> getRootCommentsByStoryId(Long storyId) {
-        // Chỉ lấy root comments: chapterId IS NULL và parentId IS NULL
-        return commentRepository.findByStoryIdAndChapterIdIsNullAndIsDeletedOrderByCreatedAtAsc(storyId, "No")
-                .stream()
-                .filter(c -> c.getParentId() == null)  // Chỉ lấy root comments, không lấy replies
-                .collect(Collectors.toList());
+        // Chỉ lấy root comments: chapterId IS NULL và parentId IS NULL (lọc trong SQL, tối đa LEGACY_LIST_LIMIT)
+        return commentRepository.findRootPage(storyId, "No", PageRequest.of(0, LEGACY_LIST_LIMIT));
     }
 
     @Override
-    public List<CommentResponse> getRepliesByParentId(Long parentId) {
-        return commentRepository.findByParentIdAndIsDeleted(parentId, "No")
-                .stream()
-                .map(c -> CommentResponse.builder()
-                        .id(c.getId())
-                        .storyId(c.getStoryId())
-                        .chapterId(c.getChapterId())
-                        .userId(c.getUserId())
-                        .parentId(c.getParentId())
-                        .content(c.getContent())
-                        .createdAt(c.getCreatedAt())
-                        .updatedAt(c.getUpdatedAt())
-                        .build())
-                .collect(Collectors.toList());
+    public CommentPage getRootCommentPageByStoryId(Long storyId, String cursor, int size, Long viewerId) {
+        int pageSize = pageSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<Comment> rows;
+        if (StringUtils.hasText(cursor)) {
+            CommentCursor after = CommentCursor.decode(cursor);
+            rows = commentRepository.findRootPageAfter(storyId, "No", after.getCreatedAt(), after.getId(), limit);
+        } else {
+            rows = commentRepository.findRootPage(storyId, "No", limit);
+        }
+        return toPage(rows, pageSize, viewerId);
     }
-}
 
+    // Cả thread (comment + mọi reply các cấp) trong một range query; client dựng cây theo parentId
+    @Override
+    public List<CommentResponse> getThread(Long commentId, Long viewerId) {
+        Comment root = commentRepository.findById(commentId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy bình luận có id = " + commentId));
+        List<Comment> thread = new ArrayList<>();
+        if ("No".equals(root.getIsDeleted())) {
+            thread.add(root);
+            thread.addAll(root.hasPath()
+                    ? commentRepository.findSubtree(root.subtreePath(), root.subtreePathUpperBound(), "No")
+                    : findSubtreeByParentId(root));
+        }
+        return withReactions(thread, viewerId);
+    }
+
+    // subtreePath() của dòng cũ (path = null) dựng lại từ chuỗi parentId, giống db/add-comment-path.sql:
+    // dừng ở tổ tiên đã có path, ở root, hoặc ở parent không còn tồn tại (coi như root).
+    // Không ghi path cho dòng cũ: các reply cũ của nó vẫn chưa có path và cần findSubtreeByParentId
+    private String rebuildSubtreePath(Comment comment) {
+        Deque<Long> ancestorIds = new ArrayDeque<>();
+        ancestorIds.push(comment.getId());
+        Set<Long> visited = new HashSet<>();
+        visited.add(comment.getId());
+        String prefix = Comment.ROOT_PATH;
+        Long parentId = comment.getParentId();
+        while (parentId != null && visited.add(parentId)) {
+            Comment ancestor = commentRepository.findById(parentId).orElse(null);
+            if (ancestor == null) {
+                break;
+            }
+            ancestorIds.push(ancestor.getId());
+            if (ancestor.hasPath()) {
+                prefix = ancestor.getPath();
+                break;
+            }
+            parentId = ancestor.getParentId();
+        }
+        StringBuilder path = new StringBuilder(prefix);
+        ancestorIds.forEach(ancestorId -> path.append(ancestorId).append('/'));
+        return path.toString();
+    }
+
+    // Cây con của dòng cũ chưa có path: duyệt theo parentId từng cấp (chậm hơn range query, chỉ dùng tạm
+    // cho tới khi chạy backfill); cùng thứ tự và cùng điều kiện chưa xóa như findSubtree
+    private List<Comment> findSubtreeByParentId(Comment root) {
+        List<Comment> subtree = new ArrayList<>();
+        Set<Long> visited = new HashSet<>();
+        visited.add(root.getId());
+        Deque<Long> queue = new ArrayDeque<>();
+        queue.add(root.getId());
+        while (!queue.isEmpty()) {
+            for (Comment child : commentRepository.findByParentId(queue.poll())) {
+                if (!visited.add(child.getId())) {
+                    continue;
+                }
+                queue.add(child.getId());
+                if ("No".equals(child.getIsDeleted())) {
+                    subtree.add(child);
+                }
+            }
+        }
+        subtree.sort(Comparator.comparing(Comment::getCreatedAt).thenComparing(Comment::getId));
+        return subtree;
+    }
+
+    @Override
+    public List<CommentResponse> getRepliesByParentId(Long parentId, Long viewerId) {
+        return withReactions(commentRepository.findByParentIdAndIsDeleted(parentId, "No"), viewerId);
+    }
 
+    private CommentPage toPage(List<Comment> rows, int pageSize, Long viewerId) {
+        boolean hasMore = rows.size() > pageSize;
+        List<Comment> visible = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            Comment last = visible.get(visible.size() - 1);
+            nextCursor = new CommentCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return CommentPage.builder()
+                .items(withReactions(visible, viewerId))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private static int pageSize(int size) {
+        return Math.min(Math.max(1, size), MAX_PAGE_SIZE);
+    }
 
+    // Gắn số reaction cho cả trang bằng một query thay vì client gọi /api/reaction cho từng comment
+    private List<CommentResponse> withReactions(List<Comment> comments, Long viewerId) {
+        Map<Long, ReactionSummary> summaries = reactionService.getReactionSummaries(
+                comments.stream().map(Comment::getId).toList(), viewerId);
+        return comments.stream()
+                .map(c -> toResponse(c, summaries.get(c.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private static CommentResponse toResponse(Comment c, ReactionSummary reactions) {
+        CommentResponse.CommentResponseBuilder builder = CommentResponse.builder()
+                .id(c.getId())
+                .storyId(c.getStoryId())
+                .chapterId(c.getChapterId())
+                .userId(c.getUserId())
+                .parentId(c.getParentId())
+                .content(c.getContent())
+                .createdAt(c.getCreatedAt())
+                .updatedAt(c.getUpdatedAt());
+        if (reactions != null) {
+            builder.likeCount(reactions.getLikeCount())
+                    .tymCount(reactions.getTymCount())
+                    .hahaCount(reactions.getHahaCount())
+                    .sadCount(reactions.getSadCount())
+                    .angryCount(reactions.getAngryCount())
+                    .wowCount(reactions.getWowCount())
+                    .myReaction(reactions.getMyReaction());
+        }
+        return builder.build();
+    }
+}
@@ -85,17 +85,14 @@ public class RatingServiceImpl implements RatingService {
     }
 
 
+    // Người gọi (xóa truyện) gửi một StoryPurgedEvent chứa các id này thay vì một event cho từng rating
     @Override
     @Transactional
-    public void deleteRatingsByStoryId(Long storyId) {
-        List<Long> ratingsId = ratingRepository.findIdsByStoryId(storyId);
-        for (Long ratingId : ratingsId) {
-            // 5️⃣ phát sự kiện sang notification-service
-            ratingEventPublisher.publishRatingDeletedEvent(
-                    new RatingDeletedEvent(ratingId)
-            );
+    public List<Long> deleteRatingsByStoryId(Long storyId) {
+        List<Long> ratingIds = ratingRepository.findIdsByStoryId(storyId);
+        if (!ratingIds.isEmpty()) {
+            ratingRepository.deleteByStoryId(storyId);
         }
-        ratingRepository.deleteByStoryId(storyId);
+        return ratingIds;
     }
 }
-
@@ -4,6 +4,7 @@ package org.example.storyreading.commentservice.service.impl;
 //import lombok.RequiredArgsConstructor;
 //import org.example.storyreading.commentservice.dto.reaction.ReactionRequest;
 //import org.example.storyreading.commentservice.dto.reaction.ReactionResponse;
+import org.example.storyreading.commentservice.dto.reaction.ReactionSummary;
 //import org.example.storyreading.commentservice.entity.Reaction;
 //import org.example.storyreading.commentservice.entity.Reaction.ReactionType;
 //import org.example.storyreading.commentservice.event.reaction.ReactionDeletedEvent;
@@ -23,17 +24,22 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.example.storyreading.commentservice.dto.reaction.ReactionRequest;
 import org.example.storyreading.commentservice.dto.reaction.ReactionResponse;
+import org.example.storyreading.commentservice.entity.CommentReactionCount;
 import org.example.storyreading.commentservice.entity.Reaction;
 import org.example.storyreading.commentservice.entity.Reaction.ReactionType;
 import org.example.storyreading.commentservice.event.reaction.ReactionDeletedEvent;
 import org.example.storyreading.commentservice.event.reaction.ReactionEventPublisher;
 import org.example.storyreading.commentservice.event.reaction.ReactionEvent;
+import org.example.storyreading.commentservice.repository.CommentReactionCountRepository;
 import org.example.storyreading.commentservice.repository.ReactionRepository;
 import org.example.storyreading.commentservice.service.ReactionService;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -42,10 +48,12 @@ import java.util.Map;
 public class ReactionServiceImpl implements ReactionService {
 
     private final ReactionRepository reactionRepository;
+    private final CommentReactionCountRepository reactionCountRepository;
     private final SimpMessagingTemplate messagingTemplate;
     private final ReactionEventPublisher reactionEventPublisher;
 
     @Override
+    @Transactional
     public ReactionResponse react(ReactionRequest request) {
         Reaction reaction = reactionRepository.findByUserIdAndCommentId(request.getUserId(), request.getCommentId())
                 .orElse(Reaction.builder()
@@ -53,8 +61,12 @@ public class ReactionServiceImpl implements ReactionService {
                         .commentId(request.getCommentId())
                         .build());
 
+        ReactionType previousType = reaction.getType();
         reaction.setType(request.getType());
         Reaction saved = reactionRepository.save(reaction);
+        if (previousType != saved.getType()) {
+            adjustCounts(saved.getCommentId(), saved.getType(), previousType);
+        }
 
         reactionEventPublisher.publishReactionEvent(
                 new ReactionEvent(reaction.getId(), reaction.getCommentId(), reaction.getUserId(),
@@ -93,6 +105,7 @@ public class ReactionServiceImpl implements ReactionService {
 
         // Xóa reaction
         reactionRepository.delete(reaction);
+        adjustCounts(commentId, null, reaction.getType());
 
         // Tính lại số lượng các loại reaction
         Map<ReactionType, Long> reactionCounts = getReactionCounts(commentId);
@@ -118,8 +131,28 @@ public class ReactionServiceImpl implements ReactionService {
     }
 
     @Override
+    @Transactional
     public void removeReactionById(Long reactionId) {
-        reactionRepository.deleteById(reactionId);
+        reactionRepository.findById(reactionId).ifPresent(reaction -> {
+            reactionRepository.delete(reaction);
+            adjustCounts(reaction.getCommentId(), null, reaction.getType());
+        });
+    }
+
+    // Xóa reaction và bộ đếm của nhiều comment bằng câu lệnh theo tập, không load từng reaction
+    @Override
+    @Transactional
+    public List<Long> removeReactionsByCommentIds(Collection<Long> commentIds) {
+        if (commentIds.isEmpty()) {
+            return List.of();
+        }
+        Long[] ids = commentIds.toArray(Long[]::new);
+        List<Long> reactionIds = reactionRepository.findIdsByCommentIds(ids);
+        if (!reactionIds.isEmpty()) {
+            reactionRepository.deleteByCommentIds(ids);
+        }
+        reactionCountRepository.deleteByCommentIds(ids);
+        return reactionIds;
     }
 
     @Override
@@ -129,15 +162,55 @@ public class ReactionServiceImpl implements ReactionService {
     }
 
     /**
-     * Helper method để đếm tất cả các loại reaction của một comment
+     * Đọc số lượng từng loại reaction từ dòng comment_reaction_counts (một lookup theo khóa chính).
+     * Comment chưa có dòng đếm (dữ liệu cũ) được dựng lại một lần từ bảng reaction.
      */
     @Override
+    @Transactional
     public Map<ReactionType, Long> getReactionCounts(Long commentId) {
-        Map<ReactionType, Long> counts = new HashMap<>();
+        return reactionCountRepository.findById(commentId)
+                .or(() -> {
+                    reactionCountRepository.rebuildFromReactions(commentId);
+                    return reactionCountRepository.findById(commentId);
+                })
+                .map(CommentReactionCount::toMap)
+                .orElseGet(ReactionServiceImpl::emptyCounts);
+    }
+
+    @Override
+    @Transactional
+    public Map<Long, ReactionSummary> getReactionSummaries(Collection<Long> commentIds, Long viewerId) {
+        Map<Long, ReactionSummary> summaries = new LinkedHashMap<>();
+        if (commentIds.isEmpty()) {
+            return summaries;
+        }
+        Long[] ids = commentIds.toArray(Long[]::new);
+        // Comment chưa có dòng đếm được dựng lại như getReactionCounts, không báo 0 reaction
+        reactionCountRepository.rebuildMissingFromReactions(ids);
+        for (ReactionSummary summary : reactionCountRepository.findSummaries(ids, viewerId)) {
+            summaries.putIfAbsent(summary.getCommentId(), summary);
+        }
+        return summaries;
+    }
+
+    // Cập nhật bộ đếm trong cùng transaction với thao tác trên bảng reaction
+    private void adjustCounts(Long commentId, ReactionType added, ReactionType removed) {
+        String addedName = added != null ? added.name() : null;
+        String removedName = removed != null ? removed.name() : null;
+        if (reactionCountRepository.applyDelta(commentId, addedName, removedName) > 0) {
+            return;
+        }
+        // Chưa có dòng đếm: dựng từ bảng reaction (đã gồm thay đổi vừa flush).
+        // Nếu transaction khác vừa tạo dòng thì insert bị bỏ qua và ta cộng delta vào dòng đó.
+        if (reactionCountRepository.rebuildFromReactions(commentId) == 0) {
+            reactionCountRepository.applyDelta(commentId, addedName, removedName);
+        }
+    }
 
+    static Map<ReactionType, Long> emptyCounts() {
+        Map<ReactionType, Long> counts = new EnumMap<>(ReactionType.class);
         for (ReactionType type : ReactionType.values()) {
-            long count = reactionRepository.countByCommentIdAndType(commentId, type);
-            counts.put(type, count);
+            counts.put(type, 0L);
         }
         return counts;
     }
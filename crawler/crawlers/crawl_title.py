@@ -33,6 +33,8 @@ DEFAULT_HEADERS = {
 # Story Service API Configuration
 STORY_SERVICE_URL = os.getenv("STORY_SERVICE_URL", "http://localhost:8083")
 STORY_SERVICE_USER_ID = os.getenv("STORY_SERVICE_USER_ID", "1")  # Default user ID for crawler
+# Số chapter gửi trong một lần gọi /chapters/import (thay vì mỗi chapter một request)
+IMPORT_BATCH_SIZE = int(os.getenv("IMPORT_BATCH_SIZE", "50"))
 
 # PostgreSQL Database Configuration (storydb)
 DB_HOST = os.getenv("DB_HOST", "localhost")
@@ -47,6 +49,15 @@ def slugify(text):
     text = re.sub(r'[^\w\s-]', '', text).strip().lower()
     return re.sub(r'[-\s]+', '-', text)
 
+def normalize_search_text(text: Optional[str]) -> str:
+    """Giống SearchTextUtil.normalize của story-service: bỏ dấu, đ -> d, chữ thường, gộp khoảng trắng"""
+    if not text:
+        return ""
+    s = unicodedata.normalize('NFD', text)
+    s = ''.join(ch for ch in s if not unicodedata.category(ch).startswith('M'))
+    s = s.replace('đ', 'd').replace('Đ', 'D').lower()
+    return re.sub(r'\s+', ' ', s).strip()
+
 def download_image(image_url, save_dir, filename=None):
     os.makedirs(save_dir, exist_ok=True)
     
@@ -178,6 +189,41 @@ def create_chapter_via_api(story_id: int, chapter_number: int, title: str, image
             print(f"    Response: {e.response.text}")
         return None
 
+def import_chapters_via_api(story_id: int, chapters: List[Dict],
+                            service_url: str = None, user_id: str = None) -> Optional[Dict]:
+    """Gọi API bulk import của story-service để tạo nhiều chapter trong một request"""
+    service_url = service_url or STORY_SERVICE_URL
+    user_id = user_id or STORY_SERVICE_USER_ID
+    url = f"{service_url}/api/story/{story_id}/chapters/import"
+    headers = {
+        "Content-Type": "application/json",
+        "X-User-Id": user_id
+    }
+    payload = {
+        "chapters": [
+            {
+                "chapterNumber": int(c["chapter_number"]),
+                "title": c["title"],
+                "imageIds": c["image_ids"]
+            }
+            for c in chapters
+        ],
+        # Chạy lại crawler cho cùng một truyện sẽ bỏ qua các chapter đã có
+        "skipExisting": True
+    }
+
+    try:
+        response = requests.post(url, json=payload, headers=headers, timeout=120)
+        response.raise_for_status()
+        result = response.json()
+        print(f"  ✓ Đã import {result.get('created')} chapter (bỏ qua {result.get('skipped')} chapter đã có)")
+        return result
+    except Exception as e:
+        print(f"  ✗ Lỗi khi import {len(chapters)} chapter: {e}")
+        if hasattr(e, 'response') and e.response is not None:
+            print(f"    Response: {e.response.text}")
+        return None
+
 def get_db_connection():
     """Kết nối đến PostgreSQL database storydb"""
     if not PSYCOPG2_AVAILABLE:
@@ -213,12 +259,25 @@ def create_story_in_db(title: str, description: str, genres: List[str], cover_im
         
         # Insert vào bảng stories
         cursor.execute("""
-            INSERT INTO stories (title, description, genres, cover_image_id, author, is_paid, price, created_at, updated_at)
-            VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s)
+            INSERT INTO stories (title, description, genres, cover_image_id, author, is_paid, price,
+                                 search_title, search_body, created_at, updated_at)
+            VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
             RETURNING id
-        """, (title, description, genres_str, cover_image_id, author, False, 0, now, now))
+        """, (title, description, genres_str, cover_image_id, author, False, 0,
+              normalize_search_text(title)[:200], normalize_search_text(description), now, now))
         
         story_id = cursor.fetchone()[0]
+
+        # Liên kết thể loại qua bảng story_genres (nguồn cho trang thể loại và số truyện theo thể loại);
+        # cột genres chỉ là bản hiển thị
+        genre_keys = sorted({g.strip().lower() for g in (genres or []) if g and g.strip()})
+        if genre_keys:
+            cursor.execute("""
+                INSERT INTO story_genres (story_id, genre_id)
+                SELECT %s, g.id FROM genres g WHERE LOWER(g.name) = ANY(%s)
+                ON CONFLICT DO NOTHING
+            """, (story_id, genre_keys))
+
         conn.commit()
         print(f"✓ Đã lưu story vào database: ID={story_id} - {title}")
         return story_id
@@ -231,7 +290,7 @@ def create_story_in_db(title: str, description: str, genres: List[str], cover_im
         conn.close()
 
 def create_chapter_in_db(story_id: int, chapter_number: int, title: str, image_ids: List[str]) -> Optional[int]:
-    """Lưu chapter trực tiếp vào database PostgreSQL"""
+    """Lưu chapter trực tiếp vào database PostgreSQL (ảnh là các dòng chapter_images theo thứ tự trang)"""
     if not PSYCOPG2_AVAILABLE:
         return None
     
@@ -241,7 +300,6 @@ def create_chapter_in_db(story_id: int, chapter_number: int, title: str, image_i
     
     try:
         cursor = conn.cursor()
-        image_ids_str = ",".join(image_ids) if image_ids else None
         now = datetime.now()
         
         # Kiểm tra xem chapter đã tồn tại chưa
@@ -252,24 +310,32 @@ def create_chapter_in_db(story_id: int, chapter_number: int, title: str, image_i
         
         existing = cursor.fetchone()
         if existing:
-            # Update chapter đã tồn tại
+            # Update chapter đã tồn tại, thay toàn bộ danh sách ảnh
+            chapter_id = existing[0]
             cursor.execute("""
                 UPDATE chapters 
-                SET title = %s, image_ids = %s, updated_at = %s
+                SET title = %s, updated_at = %s
                 WHERE id = %s
-            """, (title, image_ids_str, now, existing[0]))
-            chapter_id = existing[0]
+            """, (title, now, chapter_id))
+            cursor.execute("DELETE FROM chapter_images WHERE chapter_id = %s", (chapter_id,))
             print(f"  ✓ Đã cập nhật chapter {chapter_number}: ID={chapter_id}")
         else:
             # Insert chapter mới
             cursor.execute("""
-                INSERT INTO chapters (story_id, chapter_number, title, image_ids, created_at)
-                VALUES (%s, %s, %s, %s, %s)
+                INSERT INTO chapters (story_id, chapter_number, title, created_at)
+                VALUES (%s, %s, %s, %s)
                 RETURNING id
-            """, (story_id, int(chapter_number), title, image_ids_str, now))
+            """, (story_id, int(chapter_number), title, now))
             
             chapter_id = cursor.fetchone()[0]
             print(f"  ✓ Đã lưu chapter {chapter_number} vào database: ID={chapter_id}")
+
+        # Một dòng chapter_images cho mỗi trang, position bắt đầu từ 1 như story-service
+        pages = [url for url in (image_ids or []) if url]
+        if pages:
+            execute_values(cursor, """
+                INSERT INTO chapter_images (chapter_id, position, url, created_at) VALUES %s
+            """, [(chapter_id, position, url, now) for position, url in enumerate(pages, start=1)])
         
         conn.commit()
         return chapter_id
@@ -552,6 +618,7 @@ def crawl_truyen_info(url: str, crawl_chapters: bool = True, skip_api: bool = Fa
 
         # Crawl chapters và lưu vào database NGAY SAU MỖI CHAPTER
         chapters_data: List[Dict] = []
+        pending_import: List[Dict] = []
         if crawl_chapters:
             chapters = crawl_comic_chapters(url)
             total_chapters = len(chapters)
@@ -592,19 +659,23 @@ def crawl_truyen_info(url: str, crawl_chapters: bool = True, skip_api: bool = Fa
                             title=chapter_title,
                             image_ids=image_rel_paths
                         )
+                        print(f"  ✓ Đã lưu chương {chapter_number} vào database")
                     else:
-                        create_chapter_via_api(
-                            story_id=story_id,
-                            chapter_number=chapter_number,
-                            title=chapter_title,
-                            image_ids=image_rel_paths,
-                            service_url=service_url,
-                            user_id=user_id
-                        )
-                    print(f"  ✓ Đã lưu chương {chapter_number} vào database")
+                        # Gom chapter lại và gửi theo lô qua API import
+                        pending_import.append({
+                            "chapter_number": chapter_number,
+                            "title": chapter_title,
+                            "image_ids": image_rel_paths
+                        })
+                        if len(pending_import) >= IMPORT_BATCH_SIZE:
+                            import_chapters_via_api(story_id, pending_import, service_url=service_url, user_id=user_id)
+                            pending_import = []
                 else:
                     print(f"  ✓ Đã crawl chương {chapter_number} ({len(image_rel_paths)} ảnh)")
 
+            if pending_import:
+                import_chapters_via_api(story_id, pending_import, service_url=service_url, user_id=user_id)
+
         if chapters_data:
             comic_data["Danh sách chương"] = chapters_data
             if story_id:
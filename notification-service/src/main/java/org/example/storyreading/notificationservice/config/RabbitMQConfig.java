@@ -1,6 +1,7 @@
 package org.example.storyreading.notificationservice.config;
 
 import org.example.storyreading.notificationservice.dto.comment.CommentDeletedEvent;
+import org.example.storyreading.notificationservice.dto.comment.StoryPurgedEvent;
 import org.example.storyreading.notificationservice.dto.comment.CommentEvent;
 import org.example.storyreading.notificationservice.dto.payment.PaymentNotificationEvent;
 import org.example.storyreading.notificationservice.dto.reaction.ReactionDeletedEvent;
@@ -31,6 +32,8 @@ public class RabbitMQConfig {
     public static final String COMMENT_ROUTING_KEY = "comment.created";
     public static final String COMMENT_DELETE_QUEUE = "comment-delete-queue";
     public static final String COMMENT_DELETE_ROUTING_KEY = "comment.deleted";
+    public static final String STORY_PURGE_QUEUE = "story-purge-queue";
+    public static final String STORY_PURGE_ROUTING_KEY = "story.purged";
 
     // === REACTION ===
     public static final String REACTION_EXCHANGE = "reaction-exchange";
@@ -77,6 +80,16 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(commentDeleteQueue).to(commentExchange).with(COMMENT_DELETE_ROUTING_KEY);
     }
 
+    @Bean
+    public Queue storyPurgeQueue() {
+        return new Queue(STORY_PURGE_QUEUE, true);
+    }
+
+    @Bean
+    public Binding storyPurgeBinding(Queue storyPurgeQueue, TopicExchange commentExchange) {
+        return BindingBuilder.bind(storyPurgeQueue).to(commentExchange).with(STORY_PURGE_ROUTING_KEY);
+    }
+
     // === REACTION ===
     @Bean
     public Queue reactionQueue() {
@@ -171,6 +184,10 @@ public class RabbitMQConfig {
                 "org.example.storyreading.commentservice.event.comment.CommentDeletedEvent",
                 CommentDeletedEvent.class
         );
+        idClassMapping.put(
+                "org.example.storyreading.commentservice.event.comment.StoryPurgedEvent",
+                StoryPurgedEvent.class
+        );
 
         // Reaction events (nếu có)
         idClassMapping.put(
@@ -11,6 +11,7 @@ public class CommentDeletedEvent implements Serializable {
 
     private List<Long> reactionIds;
     private Long commentId;
+    private List<Long> commentIds; // commentId và toàn bộ reply bên dưới (null với event cũ)
 
     public CommentDeletedEvent() {}
 
@@ -26,6 +27,12 @@ public class CommentDeletedEvent implements Serializable {
     public void setCommentId(Long commentId) {
         this.commentId = commentId;
     }
+    public List<Long> getCommentIds() {
+        return commentIds;
+    }
+    public void setCommentIds(List<Long> commentIds) {
+        this.commentIds = commentIds;
+    }
     public List<Long> getReactionIds() {
         return reactionIds;
     }
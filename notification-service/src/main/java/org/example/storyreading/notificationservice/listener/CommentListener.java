@@ -3,11 +3,15 @@ package org.example.storyreading.notificationservice.listener;
 import org.example.storyreading.notificationservice.config.RabbitMQConfig;
 import org.example.storyreading.notificationservice.dto.comment.CommentDeletedEvent;
 import org.example.storyreading.notificationservice.dto.comment.CommentEvent;
+import org.example.storyreading.notificationservice.dto.comment.StoryPurgedEvent;
 import org.example.storyreading.notificationservice.service.imppl.NotificationServiceImpl;
 import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 @Component
 public class CommentListener {
 
@@ -61,12 +65,34 @@ public class CommentListener {
     @RabbitListener(queues = RabbitMQConfig.COMMENT_DELETE_QUEUE)
     public void handleCommentDeleted(CommentDeletedEvent event) {
         System.out.println("🗑 Received delete event for commentId = " + event.getCommentId());
-        notificationService.softDeleteByTypeId(event.getCommentId());
+        // Một event cho cả cây: comment gốc, các reply và reaction của chúng
+        Set<Long> typeIds = new LinkedHashSet<>();
+        if (event.getCommentId() != null) {
+            typeIds.add(event.getCommentId());
+        }
+        if (event.getCommentIds() != null) {
+            typeIds.addAll(event.getCommentIds());
+        }
         if (event.getReactionIds() != null) {
-            for (Long reactionId : event.getReactionIds()) {
-                System.out.println("🗑 Also deleting notification for associated reactionId = " + reactionId);
-                notificationService.softDeleteByTypeId(reactionId);
-            }
+            typeIds.addAll(event.getReactionIds());
+        }
+        notificationService.softDeleteByTypeIds(typeIds);
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.STORY_PURGE_QUEUE)
+    public void handleStoryPurged(StoryPurgedEvent event) {
+        System.out.println("🗑 Received purge event for storyId = " + event.getStoryId());
+        // Thông báo của mọi comment, reaction và rating thuộc truyện: một câu UPDATE
+        Set<Long> typeIds = new LinkedHashSet<>();
+        if (event.getCommentIds() != null) {
+            typeIds.addAll(event.getCommentIds());
+        }
+        if (event.getReactionIds() != null) {
+            typeIds.addAll(event.getReactionIds());
+        }
+        if (event.getRatingIds() != null) {
+            typeIds.addAll(event.getRatingIds());
         }
+        notificationService.softDeleteByTypeIds(typeIds);
     }
 }
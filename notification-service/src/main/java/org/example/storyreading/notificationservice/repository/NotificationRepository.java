@@ -16,4 +16,9 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @Modifying
     @Query("UPDATE Notification n SET n.isDeleted = true WHERE n.typeId = :typeId")
     void softDeleteByTypeId(@Param("typeId") Long typeId);
+    // Mảng một tham số: cả truyện bị xóa có thể có hàng chục nghìn id, vượt giới hạn tham số của IN (...)
+    @Modifying
+    @Query(value = "UPDATE notification SET is_deleted = true WHERE type_id = ANY(CAST(:typeIds AS bigint[])) AND is_deleted = false",
+            nativeQuery = true)
+    int softDeleteByTypeIdIn(@Param("typeIds") Long[] typeIds);
 }
@@ -5,6 +5,7 @@ import org.example.storyreading.notificationservice.dto.rating.RatingEvent;
 import org.example.storyreading.notificationservice.dto.reaction.ReactionEvent;
 import org.example.storyreading.notificationservice.entity.Notification;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificationService {
@@ -14,5 +15,6 @@ public interface NotificationService {
     void createReactionNotification(ReactionEvent event);
     void createRatingNotification(RatingEvent event);
     void softDeleteByTypeId(Long commentId);
+    void softDeleteByTypeIds(Collection<Long> typeIds);
     void markAsRead(Long notificationId);
 }
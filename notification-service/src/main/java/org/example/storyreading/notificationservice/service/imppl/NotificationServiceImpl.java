@@ -14,6 +14,7 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -169,6 +170,21 @@ public class NotificationServiceImpl implements NotificationService {
         }
     }
 
+    // Một câu UPDATE cho cả cây comment (và reaction của chúng) bị xóa
+    @Transactional
+    @Override
+    public void softDeleteByTypeIds(Collection<Long> typeIds) {
+        if (typeIds.isEmpty()) {
+            return;
+        }
+        try {
+            int updated = repository.softDeleteByTypeIdIn(typeIds.toArray(Long[]::new));
+            System.out.println("✅ Soft-deleted " + updated + " notifications for " + typeIds.size() + " comment/reaction ids");
+        } catch (Exception e) {
+            System.err.println("❌ Failed to soft-delete notifications for " + typeIds.size() + " ids: " + e.getMessage());
+        }
+    }
+
     @Transactional
     @Override
     public void markAsRead(Long notificationId) {
@@ -0,0 +1,23 @@
+-- SQL: transactional outbox for RabbitMQ events (story purchase, deposit balance, payment notifications)
+-- Run this against your Postgres database for the payment-service schema
+
+-- 1) Outbox table (Hibernate ddl-auto=update creates the same shape; IF NOT EXISTS keeps this idempotent)
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    event_id VARCHAR(36) NOT NULL UNIQUE,
+    exchange VARCHAR(255) NOT NULL,
+    routing_key VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100),
+    type_id VARCHAR(255),
+    payload TEXT NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL
+);
+
+-- 2) The relay polls due events in next_attempt_at order
+CREATE INDEX IF NOT EXISTS idx_outbox_events_next_attempt ON outbox_events (next_attempt_at);
+
+-- 3) Monitoring: events waiting to be published and the oldest one; a growing backlog means the broker is unreachable
+-- SELECT count(*) AS pending, min(created_at) AS oldest, max(attempts) AS max_attempts FROM outbox_events;
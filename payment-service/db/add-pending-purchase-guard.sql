@@ -0,0 +1,18 @@
+-- SQL: one in-flight purchase per user and story, and the index behind the pending-purchase reconciler
+-- Run this against your Postgres database for the payment-service schema
+
+-- 1) At most one PENDING purchase per (user, story); a concurrent second request fails on insert
+--    instead of charging twice. Resolve any existing duplicates first (see the query in 3)
+CREATE UNIQUE INDEX IF NOT EXISTS uq_payments_pending_purchase
+    ON payments (user_id, story_id)
+    WHERE payment_type = 'PURCHASE' AND status = 'PENDING';
+
+-- 2) StoryPurchaseService.reconcilePendingPurchases scans stale PENDING purchases oldest first
+CREATE INDEX IF NOT EXISTS idx_payments_pending_purchase_created
+    ON payments (created_at)
+    WHERE payment_type = 'PURCHASE' AND status = 'PENDING';
+
+-- 3) Monitoring: purchases still waiting to be reconciled; rows that stay here mean user-service is unreachable
+-- SELECT user_id, story_id, count(*) AS pending, min(created_at) AS oldest
+--   FROM payments WHERE payment_type = 'PURCHASE' AND status = 'PENDING'
+--   GROUP BY user_id, story_id ORDER BY oldest;
@@ -1,85 +1,194 @@
 package org.example.storyreading.paymentservice.client;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.example.storyreading.paymentservice.dto.DeductBalanceRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.net.ConnectException;
+import java.time.Duration;
 import java.util.Map;
 
+/**
+ * Calls user-service over a pooled HTTP client with connect / read / pool-lease timeouts.
+ * Transport failures are retried a bounded number of times with the transaction id as idempotency key
+ * (user-service records it in its balance ledger, so a repeated deduction is a no-op), and a circuit breaker
+ * fails fast while user-service is down. Call latency is recorded as a histogram per outcome.
+ */
 @Component
 public class UserServiceClient {
 
     private static final Logger log = LoggerFactory.getLogger(UserServiceClient.class);
 
+    public enum DeductOutcome {
+        DEDUCTED,
+        INSUFFICIENT_BALANCE, // user-service rejected the deduction (4xx)
+        UNAVAILABLE,          // the request certainly did not reach user-service (circuit open, connect failure, pool full)
+        UNKNOWN               // sent but no answer (read timeout, 5xx); the deduction may or may not have happened
+    }
+
+    private static final String METRIC = "user_service.client.requests";
+
     private final RestTemplate restTemplate;
+    private final CloseableHttpClient httpClient;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final String userServiceUrl;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
 
-    @Value("${user-service.url:http://localhost:8882}")
-    private String userServiceUrl;
+    public UserServiceClient(MeterRegistry meterRegistry,
+                             @Value("${user-service.url:http://localhost:8882}") String userServiceUrl,
+                             @Value("${user-service.client.max-connections:50}") int maxConnections,
+                             @Value("${user-service.client.connect-timeout-ms:1000}") long connectTimeoutMs,
+                             @Value("${user-service.client.read-timeout-ms:3000}") long readTimeoutMs,
+                             @Value("${user-service.client.pool-timeout-ms:500}") long poolTimeoutMs,
+                             @Value("${user-service.client.max-attempts:3}") int maxAttempts,
+                             @Value("${user-service.client.retry-backoff-ms:200}") long retryBackoffMs,
+                             @Value("${user-service.client.breaker.failure-rate-threshold:50}") float failureRateThreshold,
+                             @Value("${user-service.client.breaker.window-size:20}") int windowSize,
+                             @Value("${user-service.client.breaker.open-seconds:10}") long openSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.userServiceUrl = userServiceUrl;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = Duration.ofMillis(retryBackoffMs);
+
+        // One pool for the single user-service route; keep-alive avoids a TCP handshake per purchase
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .disableAutomaticRetries() // retries are ours, bounded and idempotent
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+
+        // Only transport failures and 5xx count against the breaker; a 4xx is user-service answering normally
+        this.circuitBreaker = CircuitBreaker.of("user-service", CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(Math.max(1, windowSize))
+                .minimumNumberOfCalls(Math.max(1, Math.min(windowSize, 10)))
+                .waitDurationInOpenState(Duration.ofSeconds(openSeconds))
+                .slowCallDurationThreshold(Duration.ofMillis(readTimeoutMs))
+                .recordExceptions(ResourceAccessException.class, HttpServerErrorException.class)
+                .build());
+        Gauge.builder("user_service.client.circuit_state", circuitBreaker, cb -> cb.getState().getOrder())
+                .description("0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+    }
 
-    public UserServiceClient() {
-        this.restTemplate = new RestTemplate();
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
     }
 
-    public boolean checkAndDeductBalance(Long userId, BigDecimal amount, String transactionId) {
+    public DeductOutcome checkAndDeductBalance(Long userId, BigDecimal amount, String transactionId) {
         String url = userServiceUrl + "/api/users/balance/deduct";
-        log.info("Calling user-service to deduct balance: url={}, userId={}, amount={}, transactionId={}", 
+        log.info("Calling user-service to deduct balance: url={}, userId={}, amount={}, transactionId={}",
                 url, userId, amount, transactionId);
 
-        try {
-            DeductBalanceRequest request = new DeductBalanceRequest(userId, amount, transactionId);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<DeductBalanceRequest> entity = new HttpEntity<>(request, headers);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Idempotency-Key", transactionId);
+        HttpEntity<DeductBalanceRequest> entity = new HttpEntity<>(new DeductBalanceRequest(userId, amount, transactionId), headers);
 
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, entity, Map.class);
-            
-            if (response.getStatusCode().is2xxSuccessful()) {
+        boolean maybeApplied = false;
+        for (int attempt = 1; ; attempt++) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String outcome = "error";
+            try {
+                circuitBreaker.executeSupplier(() -> restTemplate.postForEntity(url, entity, Map.class));
+                outcome = "success";
                 log.info("Balance deducted successfully for userId: {}", userId);
-                return true;
-            } else {
-                log.error("Failed to deduct balance. Status: {}, Response: {}", 
-                        response.getStatusCode(), response.getBody());
-                return false;
+                return DeductOutcome.DEDUCTED;
+            } catch (HttpClientErrorException e) {
+                outcome = "rejected";
+                log.warn("user-service rejected deduction. Status: {}, Response: {}", e.getStatusCode(), e.getResponseBodyAsString());
+                return DeductOutcome.INSUFFICIENT_BALANCE;
+            } catch (CallNotPermittedException e) {
+                outcome = "circuit_open";
+                log.warn("user-service circuit is open, not calling deduct for transaction {}", transactionId);
+                return maybeApplied ? DeductOutcome.UNKNOWN : DeductOutcome.UNAVAILABLE;
+            } catch (HttpServerErrorException | ResourceAccessException e) {
+                boolean notSent = e instanceof ResourceAccessException && neverReachedServer(e);
+                outcome = notSent ? "not_sent" : "timeout_or_5xx";
+                maybeApplied |= !notSent;
+                log.warn("user-service deduct attempt {}/{} failed ({}): {}", attempt, maxAttempts, outcome, e.getMessage());
+                if (attempt >= maxAttempts) {
+                    return maybeApplied ? DeductOutcome.UNKNOWN : DeductOutcome.UNAVAILABLE;
+                }
+            } finally {
+                sample.stop(Timer.builder(METRIC)
+                        .description("Latency of user-service calls")
+                        .tag("operation", "deduct")
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
             }
-        } catch (HttpClientErrorException e) {
-            // 4xx errors - client errors (e.g., insufficient balance, bad request)
-            HttpStatusCode statusCode = e.getStatusCode();
-            String responseBody = e.getResponseBodyAsString();
-            log.error("Client error when deducting balance. Status: {}, Response: {}", statusCode, responseBody);
-            
-            // Try to extract error message from response
-            if (responseBody != null && responseBody.contains("Insufficient balance")) {
-                log.error("User {} has insufficient balance. Amount required: {}", userId, amount);
+            if (!sleep(retryBackoff.multipliedBy(1L << (attempt - 1)))) {
+                return maybeApplied ? DeductOutcome.UNKNOWN : DeductOutcome.UNAVAILABLE;
             }
-            return false;
-        } catch (HttpServerErrorException e) {
-            // 5xx errors - server errors
-            log.error("Server error when deducting balance. Status: {}, Response: {}", 
-                    e.getStatusCode(), e.getResponseBodyAsString());
-            return false;
-        } catch (ResourceAccessException e) {
-            // Connection errors (service not available, timeout, etc.)
-            log.error("Cannot connect to user-service at {}. Error: {}", url, e.getMessage());
-            log.error("Please check if user-service is running on {}", userServiceUrl);
-            return false;
-        } catch (Exception e) {
-            log.error("Unexpected error when deducting balance: {}", e.getMessage(), e);
+        }
+    }
+
+    // Connect failures and pool-lease timeouts happen before any byte reaches user-service
+    private static boolean neverReachedServer(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException
+                    || cause instanceof ConnectTimeoutException
+                    || cause instanceof ConnectionRequestTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return false;
         }
     }
 }
-
@@ -82,6 +82,8 @@ public class RabbitMQConfig {
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
         rabbitTemplate.setMessageConverter(messageConverter());
+        // Unroutable messages come back to the outbox relay instead of being dropped silently
+        rabbitTemplate.setMandatory(true);
         return rabbitTemplate;
     }
 }
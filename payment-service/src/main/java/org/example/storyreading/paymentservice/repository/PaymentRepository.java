@@ -1,9 +1,15 @@
 package org.example.storyreading.paymentservice.repository;
 
+import jakarta.persistence.LockModeType;
 import org.example.storyreading.paymentservice.entity.Payment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,4 +27,17 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
         Payment.PaymentType paymentType,
         Payment.PaymentStatus status
     );
+
+    // Row lock so the purchase request and the reconciler cannot both settle the same payment
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.id = :id")
+    Optional<Payment> findForUpdate(@Param("id") Long id);
+
+    // Purchases left PENDING by an unknown deduction outcome, oldest first
+    List<Payment> findByPaymentTypeAndStatusAndCreatedAtBeforeOrderByCreatedAtAsc(
+        Payment.PaymentType paymentType,
+        Payment.PaymentStatus status,
+        LocalDateTime createdBefore,
+        Pageable pageable
+    );
 }
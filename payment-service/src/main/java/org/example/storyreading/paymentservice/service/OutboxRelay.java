@@ -0,0 +1,192 @@
+package org.example.storyreading.paymentservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.storyreading.paymentservice.entity.OutboxEvent;
+import org.example.storyreading.paymentservice.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the outbox_events rows written by {@link OutboxService}.
+ * A batch is claimed with FOR UPDATE SKIP LOCKED and leased, sent in one go, and then every message waits
+ * for its publisher confirm; only confirmed (and routed) rows are deleted. Anything else is retried with
+ * backoff, so delivery is at-least-once and consumers dedupe on the message id / transaction id.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService worker;
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+    private final Duration lease;
+    private final Duration retryBase;
+    private final Duration retryMax;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       RabbitTemplate rabbitTemplate,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${payment.outbox.batch-size:100}") int batchSize,
+                       @Value("${payment.outbox.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                       @Value("${payment.outbox.lease-seconds:60}") long leaseSeconds,
+                       @Value("${payment.outbox.retry-base-seconds:2}") long retryBaseSeconds,
+                       @Value("${payment.outbox.retry-max-seconds:300}") long retryMaxSeconds) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.retryBase = Duration.ofSeconds(retryBaseSeconds);
+        this.retryMax = Duration.ofSeconds(retryMaxSeconds);
+        // One relay thread per instance; SKIP LOCKED spreads the work across instances
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "outbox-relay");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    // Fallback for events whose after-commit nudge was lost (restart, broker down) and for retries
+    @Scheduled(initialDelayString = "${payment.outbox.initial-delay-ms:5000}",
+            fixedDelayString = "${payment.outbox.interval-ms:2000}")
+    public void poll() {
+        requestDrain();
+    }
+
+    // Coalesces nudges: at most one drain is queued behind the running one
+    public void requestDrain() {
+        if (drainRequested.compareAndSet(false, true)) {
+            worker.execute(() -> {
+                drainRequested.set(false);
+                try {
+                    drain();
+                } catch (Exception e) {
+                    log.error("Outbox relay run failed: {}", e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            List<OutboxEvent> batch = claim();
+            if (batch.isEmpty()) return;
+            int published = publish(batch);
+            // Stop on failures so a broker outage is retried on the backoff schedule, not in a tight loop
+            if (batch.size() < batchSize || published < batch.size()) return;
+        }
+    }
+
+    private List<OutboxEvent> claim() {
+        List<OutboxEvent> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> due = outboxEventRepository.lockDue(now, batchSize);
+            if (!due.isEmpty()) {
+                outboxEventRepository.lease(due.stream().map(OutboxEvent::getId).toList(), now.plus(lease));
+            }
+            return due;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    private int publish(List<OutboxEvent> batch) {
+        // Send the whole batch first, then collect the confirms, so the batch costs one broker round trip
+        List<CorrelationData> confirms = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            CorrelationData correlation = new CorrelationData(event.getEventId());
+            try {
+                rabbitTemplate.send(event.getExchange(), event.getRoutingKey(), toMessage(event), correlation);
+            } catch (Exception e) {
+                correlation.getFuture().completeExceptionally(e);
+            }
+            confirms.add(correlation);
+        }
+
+        List<Long> done = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            CorrelationData correlation = confirms.get(i);
+            String error;
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                CorrelationData.Confirm confirm = correlation.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+                if (!confirm.isAck()) {
+                    error = "nack: " + confirm.getReason();
+                } else if (correlation.getReturned() != null) {
+                    error = "unroutable: " + correlation.getReturned().getReplyText();
+                } else {
+                    done.add(event.getId());
+                    continue;
+                }
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+            }
+            recordFailure(event, error);
+        }
+
+        if (!done.isEmpty()) {
+            outboxEventRepository.deleteByIdIn(done);
+            log.debug("Published {} outbox events", done.size());
+        }
+        return done.size();
+    }
+
+    private void recordFailure(OutboxEvent event, String error) {
+        int attempt = event.getAttempts() + 1;
+        outboxEventRepository.recordFailure(event.getId(), LocalDateTime.now().plus(backoff(attempt)),
+                error.length() > 1000 ? error.substring(0, 1000) : error);
+        log.warn("Failed to publish outbox event {} to {}/{} (attempt {}), will retry: {}",
+                event.getEventId(), event.getExchange(), event.getRoutingKey(), attempt, error);
+    }
+
+    private static Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(event.getContentType());
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setMessageId(event.getEventId());
+        if (event.getTypeId() != null) {
+            properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, event.getTypeId());
+        }
+        return new Message(event.getPayload().getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    // Events are never dropped; the delay just stops growing at retry-max
+    private Duration backoff(int attempt) {
+        Duration delay = retryBase.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(retryMax) > 0 ? retryMax : delay;
+    }
+}
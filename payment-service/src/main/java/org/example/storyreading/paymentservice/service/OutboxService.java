@@ -0,0 +1,68 @@
+package org.example.storyreading.paymentservice.service;
+
+import org.example.storyreading.paymentservice.entity.OutboxEvent;
+import org.example.storyreading.paymentservice.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Writes RabbitMQ events into the outbox table as part of the caller's transaction.
+ * Nothing is sent to the broker here: {@link OutboxRelay} publishes the rows once the transaction has committed,
+ * so an event exists if and only if the payment change that produced it exists.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final MessageConverter messageConverter;
+    private final OutboxRelay outboxRelay;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository,
+                         MessageConverter messageConverter,
+                         OutboxRelay outboxRelay) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.messageConverter = messageConverter;
+        this.outboxRelay = outboxRelay;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String exchange, String routingKey, Object event) {
+        Message message = messageConverter.toMessage(event, new MessageProperties());
+        MessageProperties properties = message.getMessageProperties();
+
+        OutboxEvent row = new OutboxEvent();
+        row.setEventId(UUID.randomUUID().toString());
+        row.setExchange(exchange);
+        row.setRoutingKey(routingKey);
+        row.setContentType(properties.getContentType());
+        Object typeId = properties.getHeaders().get(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME);
+        row.setTypeId(typeId == null ? null : typeId.toString());
+        row.setPayload(new String(message.getBody(), StandardCharsets.UTF_8));
+        row.setNextAttemptAt(LocalDateTime.now());
+        outboxEventRepository.save(row);
+        log.info("Queued {} event {} for {}/{}", event.getClass().getSimpleName(), row.getEventId(), exchange, routingKey);
+
+        // Publish right after commit instead of waiting for the next poll
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.requestDrain();
+            }
+        });
+    }
+}
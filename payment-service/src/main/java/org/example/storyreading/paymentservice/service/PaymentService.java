@@ -9,7 +9,6 @@ import org.example.storyreading.paymentservice.dto.VNPayResponse;
 import org.example.storyreading.paymentservice.entity.Payment;
 import org.example.storyreading.paymentservice.repository.PaymentRepository;
 import org.example.storyreading.paymentservice.util.VNPayUtil;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,13 +30,13 @@ public class PaymentService {
 
     private final PaymentRepository paymentRepository;
     private final VNPayConfig vnPayConfig;
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
 
     // Explicit constructor to avoid Lombok dependency
-    public PaymentService(PaymentRepository paymentRepository, VNPayConfig vnPayConfig, RabbitTemplate rabbitTemplate) {
+    public PaymentService(PaymentRepository paymentRepository, VNPayConfig vnPayConfig, OutboxService outboxService) {
         this.paymentRepository = paymentRepository;
         this.vnPayConfig = vnPayConfig;
-        this.rabbitTemplate = rabbitTemplate;
+        this.outboxService = outboxService;
     }
 
     @Transactional
@@ -174,66 +173,37 @@ public class PaymentService {
         }
     }
 
+    // Events go to the outbox in the callback's transaction, so a commit always yields its balance update
     private void sendPaymentSuccessEvent(Payment payment) {
-        try {
-            PaymentEvent event = new PaymentEvent();
-            event.setUserId(payment.getUserId());
-            event.setTransactionId(payment.getTransactionId());
-            event.setAmount(payment.getAmount());
-            event.setStatus("SUCCESS");
-            event.setPaymentType(payment.getPaymentType().name());
-            event.setTimestamp(LocalDateTime.now());
-
-            log.info("💰 Sending payment success event to RabbitMQ:");
-            log.info("  - Exchange: {}", RabbitMQConfig.PAYMENT_EXCHANGE);
-            log.info("  - Routing Key: {}", RabbitMQConfig.PAYMENT_ROUTING_KEY);
-            log.info("  - UserId: {}", event.getUserId());
-            log.info("  - TransactionId: {}", event.getTransactionId());
-            log.info("  - Amount: {}", event.getAmount());
-            log.info("  - PaymentType: {}", event.getPaymentType());
-            log.info("  - Status: {}", event.getStatus());
-
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.PAYMENT_EXCHANGE,
-                RabbitMQConfig.PAYMENT_ROUTING_KEY,
-                event
-            );
-
-            log.info("✅ Payment success event sent to RabbitMQ for transaction: {}", payment.getTransactionId());
-        } catch (Exception e) {
-            log.error("❌ Failed to send payment event to RabbitMQ", e);
-            e.printStackTrace();
-        }
+        PaymentEvent event = new PaymentEvent();
+        event.setUserId(payment.getUserId());
+        event.setTransactionId(payment.getTransactionId());
+        event.setAmount(payment.getAmount());
+        event.setStatus("SUCCESS");
+        event.setPaymentType(payment.getPaymentType().name());
+        event.setTimestamp(LocalDateTime.now());
+
+        outboxService.enqueue(
+            RabbitMQConfig.PAYMENT_EXCHANGE,
+            RabbitMQConfig.PAYMENT_ROUTING_KEY,
+            event
+        );
     }
 
     private void sendPaymentNotificationEvent(Payment payment, String status, String message) {
-        try {
-            PaymentNotificationEvent event = new PaymentNotificationEvent();
-            event.setUserId(payment.getUserId());
-            event.setTransactionId(payment.getTransactionId());
-            event.setAmount(payment.getAmount());
-            event.setStatus(status);
-            event.setPaymentType(payment.getPaymentType().name());
-            event.setMessage(message);
-
-            log.info("🔔 Sending payment notification event to RabbitMQ:");
-            log.info("  - Exchange: {}", RabbitMQConfig.PAYMENT_NOTIFICATION_EXCHANGE);
-            log.info("  - Routing Key: {}", RabbitMQConfig.PAYMENT_NOTIFICATION_ROUTING_KEY);
-            log.info("  - UserId: {}", event.getUserId());
-            log.info("  - Status: {}", event.getStatus());
-            log.info("  - Message: {}", event.getMessage());
-
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.PAYMENT_NOTIFICATION_EXCHANGE,
-                RabbitMQConfig.PAYMENT_NOTIFICATION_ROUTING_KEY,
-                event
-            );
-
-            log.info("✅ Payment notification event sent to RabbitMQ for transaction: {}", payment.getTransactionId());
-        } catch (Exception e) {
-            log.error("❌ Failed to send payment notification event to RabbitMQ", e);
-            e.printStackTrace();
-        }
+        PaymentNotificationEvent event = new PaymentNotificationEvent();
+        event.setUserId(payment.getUserId());
+        event.setTransactionId(payment.getTransactionId());
+        event.setAmount(payment.getAmount());
+        event.setStatus(status);
+        event.setPaymentType(payment.getPaymentType().name());
+        event.setMessage(message);
+
+        outboxService.enqueue(
+            RabbitMQConfig.PAYMENT_NOTIFICATION_EXCHANGE,
+            RabbitMQConfig.PAYMENT_NOTIFICATION_ROUTING_KEY,
+            event
+        );
     }
 
     public Optional<Payment> getPaymentByTransactionId(String transactionId) {
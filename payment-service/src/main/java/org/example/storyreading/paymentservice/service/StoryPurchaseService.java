@@ -9,11 +9,16 @@ import org.example.storyreading.paymentservice.entity.Payment;
 import org.example.storyreading.paymentservice.repository.PaymentRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -21,20 +26,33 @@ public class StoryPurchaseService {
 
     private static final Logger log = LoggerFactory.getLogger(StoryPurchaseService.class);
 
+    private static final String PURCHASE_PENDING_MESSAGE =
+        "Giao dịch mua truyện này đang được xử lý. Vui lòng kiểm tra lại sau ít phút.";
+
     private final PaymentRepository paymentRepository;
     private final UserServiceClient userServiceClient;
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final long reconcileStaleSeconds;
+    private final int reconcileBatchSize;
 
     // Constructor thay thế cho @RequiredArgsConstructor
     public StoryPurchaseService(PaymentRepository paymentRepository,
                                 UserServiceClient userServiceClient,
-                                RabbitTemplate rabbitTemplate) {
+                                OutboxService outboxService,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${payment.purchase-reconcile.stale-seconds:60}") long reconcileStaleSeconds,
+                                @Value("${payment.purchase-reconcile.batch-size:50}") int reconcileBatchSize) {
         this.paymentRepository = paymentRepository;
         this.userServiceClient = userServiceClient;
-        this.rabbitTemplate = rabbitTemplate;
+        this.outboxService = outboxService;
+        this.transactionTemplate = transactionTemplate;
+        this.reconcileStaleSeconds = reconcileStaleSeconds;
+        this.reconcileBatchSize = reconcileBatchSize;
     }
 
-    @Transactional
+    // Not @Transactional: the user-service call runs between two short transactions, so a slow
+    // user-service never pins a Hikari connection
     public Payment purchaseStory(Long userId, PurchaseStoryRequest request) {
         log.info("Starting story purchase for userId: {}, storyId: {}, price: {}", 
                 userId, request.getStoryId(), request.getPrice());
@@ -48,122 +66,186 @@ public class StoryPurchaseService {
             throw new IllegalArgumentException("Giá truyện phải lớn hơn 0. Truyện premium yêu cầu giá > 0");
         }
 
-        // Kiểm tra xem user đã mua truyện này chưa
-        boolean alreadyPurchased = paymentRepository.existsByUserIdAndStoryIdAndPaymentTypeAndStatus(
-            userId,
-            request.getStoryId(),
-            Payment.PaymentType.PURCHASE,
-            Payment.PaymentStatus.SUCCESS
-        );
-
-        if (alreadyPurchased) {
-            log.warn("User {} already purchased story {}", userId, request.getStoryId());
-            throw new RuntimeException("Bạn đã mua truyện này rồi");
-        }
-
-        // Generate unique transaction ID
+        // Generate unique transaction ID (also the idempotency key for the balance deduction)
         String transactionId = "PURCHASE-" + UUID.randomUUID().toString();
 
-        // Create pending payment record
-        Payment payment = new Payment();
-        payment.setUserId(userId);
-        payment.setStoryId(request.getStoryId());
-        payment.setTransactionId(transactionId);
-        payment.setAmount(request.getPrice());
-        payment.setPaymentType(Payment.PaymentType.PURCHASE);
-        payment.setStatus(Payment.PaymentStatus.PENDING);
-        payment.setDescription("Purchase story ID: " + request.getStoryId());
-
-        payment = paymentRepository.save(payment);
-        log.info("Created pending payment with ID: {}", payment.getId());
-
+        Payment pending;
         try {
-            // Call user-service to check balance and deduct amount with SELECT FOR UPDATE
-            log.info("Attempting to deduct balance: userId={}, amount={}", userId, request.getPrice());
-            boolean deductSuccess = userServiceClient.checkAndDeductBalance(
-                userId,
-                request.getPrice(),
-                transactionId
-            );
-
-            if (!deductSuccess) {
-                log.error("Failed to deduct balance for userId: {}, amount: {}", userId, request.getPrice());
-                payment.setStatus(Payment.PaymentStatus.FAILED);
-                payment.setDescription("Insufficient balance or deduction failed. Please check your balance or try again later.");
-                paymentRepository.save(payment);
-                throw new RuntimeException("Số dư không đủ hoặc không thể trừ tiền. Vui lòng kiểm tra số dư tài khoản hoặc thử lại sau.");
-            }
+            pending = transactionTemplate.execute(status -> {
+                // Kiểm tra xem user đã mua truyện này chưa
+                boolean alreadyPurchased = paymentRepository.existsByUserIdAndStoryIdAndPaymentTypeAndStatus(
+                    userId,
+                    request.getStoryId(),
+                    Payment.PaymentType.PURCHASE,
+                    Payment.PaymentStatus.SUCCESS
+                );
+
+                if (alreadyPurchased) {
+                    log.warn("User {} already purchased story {}", userId, request.getStoryId());
+                    throw new RuntimeException("Bạn đã mua truyện này rồi");
+                }
+
+                // Một giao dịch mua truyện này vẫn đang chờ xác nhận (hoặc chờ đối soát)
+                boolean purchasePending = paymentRepository.existsByUserIdAndStoryIdAndPaymentTypeAndStatus(
+                    userId,
+                    request.getStoryId(),
+                    Payment.PaymentType.PURCHASE,
+                    Payment.PaymentStatus.PENDING
+                );
+
+                if (purchasePending) {
+                    log.warn("User {} already has a pending purchase of story {}", userId, request.getStoryId());
+                    throw new RuntimeException(PURCHASE_PENDING_MESSAGE);
+                }
+
+                // Create pending payment record
+                Payment payment = new Payment();
+                payment.setUserId(userId);
+                payment.setStoryId(request.getStoryId());
+                payment.setTransactionId(transactionId);
+                payment.setAmount(request.getPrice());
+                payment.setPaymentType(Payment.PaymentType.PURCHASE);
+                payment.setStatus(Payment.PaymentStatus.PENDING);
+                payment.setDescription("Purchase story ID: " + request.getStoryId());
+                return paymentRepository.save(payment);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Lost the race against a concurrent request: uq_payments_pending_purchase allows one PENDING row
+            log.warn("Concurrent purchase of story {} by user {} rejected", request.getStoryId(), userId);
+            throw new RuntimeException(PURCHASE_PENDING_MESSAGE);
+        }
+        log.info("Created pending payment with ID: {}", pending.getId());
 
-            log.info("Balance deducted successfully for userId: {}", userId);
+        log.info("Attempting to deduct balance: userId={}, amount={}", userId, request.getPrice());
+        UserServiceClient.DeductOutcome outcome = userServiceClient.checkAndDeductBalance(
+            userId,
+            request.getPrice(),
+            transactionId
+        );
 
-            // Update payment status to success
-            payment.setStatus(Payment.PaymentStatus.SUCCESS);
-            payment = paymentRepository.save(payment);
+        switch (outcome) {
+            case DEDUCTED:
+                return transactionTemplate.execute(status -> completePurchase(pending.getId()));
+            case INSUFFICIENT_BALANCE:
+                markFailed(pending.getId(), "Insufficient balance or deduction rejected by user-service.");
+                throw new RuntimeException("Số dư không đủ hoặc không thể trừ tiền. Vui lòng kiểm tra số dư tài khoản.");
+            case UNAVAILABLE:
+                markFailed(pending.getId(), "user-service unavailable; balance was not deducted.");
+                throw new RuntimeException("Hệ thống thanh toán đang bận. Vui lòng thử lại sau.");
+            default:
+                // The deduction may have been applied; the payment stays PENDING and reconcilePendingPurchases
+                // settles it against user-service's balance ledger (same transaction id)
+                log.error("Deduction outcome unknown for transaction {}, leaving payment {} PENDING", transactionId, pending.getId());
+                throw new RuntimeException("Chưa xác nhận được giao dịch. Vui lòng kiểm tra lại sau ít phút.");
+        }
+    }
 
-            // Publish event to RabbitMQ for story-service to grant access
-            StoryPurchaseEvent event = new StoryPurchaseEvent(
-                userId,
-                request.getStoryId(),
-                request.getPrice(),
-                transactionId
-            );
+    /**
+     * Settles PURCHASE payments left PENDING, either by an UNKNOWN deduction outcome or by a deduction that
+     * succeeded but whose completing transaction failed. The deduction is replayed with the stored transaction
+     * id, which user-service's ledger treats as idempotent, so it reports the original outcome without charging
+     * twice. Payments whose outcome is still unknown stay PENDING for the next run.
+     */
+    @Scheduled(initialDelayString = "${payment.purchase-reconcile.initial-delay-ms:30000}",
+            fixedDelayString = "${payment.purchase-reconcile.interval-ms:60000}")
+    public void reconcilePendingPurchases() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(reconcileStaleSeconds);
+        List<Payment> stale = paymentRepository.findByPaymentTypeAndStatusAndCreatedAtBeforeOrderByCreatedAtAsc(
+            Payment.PaymentType.PURCHASE,
+            Payment.PaymentStatus.PENDING,
+            cutoff,
+            PageRequest.of(0, reconcileBatchSize)
+        );
+        for (Payment payment : stale) {
+            try {
+                reconcile(payment);
+            } catch (RuntimeException e) {
+                log.warn("Reconciling pending purchase {} failed, will retry: {}", payment.getTransactionId(), e.toString());
+            }
+        }
+    }
 
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.STORY_PURCHASE_EXCHANGE,
-                RabbitMQConfig.STORY_PURCHASE_ROUTING_KEY,
-                event
-            );
+    private void reconcile(Payment payment) {
+        UserServiceClient.DeductOutcome outcome = userServiceClient.checkAndDeductBalance(
+            payment.getUserId(),
+            payment.getAmount(),
+            payment.getTransactionId()
+        );
+        switch (outcome) {
+            case DEDUCTED:
+                transactionTemplate.execute(status -> completePurchase(payment.getId()));
+                log.info("Reconciled pending purchase {} as SUCCESS", payment.getTransactionId());
+                break;
+            case INSUFFICIENT_BALANCE:
+                markFailed(payment.getId(), "Insufficient balance or deduction rejected by user-service (reconciled).");
+                log.info("Reconciled pending purchase {} as FAILED", payment.getTransactionId());
+                break;
+            default:
+                log.warn("Pending purchase {} still unresolved ({}), retrying on the next run",
+                    payment.getTransactionId(), outcome);
+        }
+    }
 
-            log.info("Published story purchase event to RabbitMQ for userId: {}, storyId: {}",
-                userId, request.getStoryId());
+    // Only a PENDING payment is settled; the request path and the reconciler may race on the same row
+    private Payment completePurchase(Long paymentId) {
+        Payment payment = paymentRepository.findForUpdate(paymentId)
+            .orElseThrow(() -> new IllegalStateException("Payment not found: " + paymentId));
+        if (payment.getStatus() != Payment.PaymentStatus.PENDING) {
+            log.info("Payment {} already settled as {}", paymentId, payment.getStatus());
+            return payment;
+        }
+        payment.setStatus(Payment.PaymentStatus.SUCCESS);
+        payment = paymentRepository.save(payment);
+        log.info("Balance deducted successfully for userId: {}", payment.getUserId());
+
+        // Grant-access event for story-service, written to the outbox in this transaction
+        StoryPurchaseEvent event = new StoryPurchaseEvent(
+            payment.getUserId(),
+            payment.getStoryId(),
+            payment.getAmount(),
+            payment.getTransactionId()
+        );
 
-            // Send payment notification event for successful purchase
-            String notificationMessage = String.format(
-                "Mua truyện premium thành công! Số tiền: %s VND",
-                request.getPrice()
-            );
-            sendPaymentNotificationEvent(payment, "SUCCESS", notificationMessage);
+        outboxService.enqueue(
+            RabbitMQConfig.STORY_PURCHASE_EXCHANGE,
+            RabbitMQConfig.STORY_PURCHASE_ROUTING_KEY,
+            event
+        );
 
-            return payment;
+        // Send payment notification event for successful purchase
+        String notificationMessage = String.format(
+            "Mua truyện premium thành công! Số tiền: %s VND",
+            payment.getAmount()
+        );
+        sendPaymentNotificationEvent(payment, "SUCCESS", notificationMessage);
+        return payment;
+    }
 
-        } catch (Exception e) {
-            log.error("Error during story purchase: {}", e.getMessage(), e);
-            payment.setStatus(Payment.PaymentStatus.FAILED);
-            payment.setDescription("Error: " + e.getMessage());
-            paymentRepository.save(payment);
-            throw new RuntimeException("Story purchase failed: " + e.getMessage());
-        }
+    private void markFailed(Long paymentId, String description) {
+        transactionTemplate.executeWithoutResult(status -> paymentRepository.findForUpdate(paymentId)
+                .filter(payment -> payment.getStatus() == Payment.PaymentStatus.PENDING)
+                .ifPresent(payment -> {
+                    payment.setStatus(Payment.PaymentStatus.FAILED);
+                    payment.setDescription(description);
+                    paymentRepository.save(payment);
+                }));
     }
 
+    // Outbox row in the purchase transaction; OutboxRelay publishes it after commit
     private void sendPaymentNotificationEvent(Payment payment, String status, String message) {
-        try {
-            PaymentNotificationEvent event = new PaymentNotificationEvent();
-            event.setUserId(payment.getUserId());
-            event.setTransactionId(payment.getTransactionId());
-            event.setAmount(payment.getAmount());
-            event.setStatus(status);
-            event.setPaymentType(payment.getPaymentType().name());
-            event.setMessage(message);
-            event.setStoryId(payment.getStoryId()); // Set storyId for PURCHASE notifications
-
-            log.info("🔔 Sending payment notification event to RabbitMQ for story purchase:");
-            log.info("  - Exchange: {}", RabbitMQConfig.PAYMENT_NOTIFICATION_EXCHANGE);
-            log.info("  - Routing Key: {}", RabbitMQConfig.PAYMENT_NOTIFICATION_ROUTING_KEY);
-            log.info("  - UserId: {}", event.getUserId());
-            log.info("  - StoryId: {}", payment.getStoryId());
-            log.info("  - Status: {}", event.getStatus());
-            log.info("  - Message: {}", event.getMessage());
-
-            rabbitTemplate.convertAndSend(
-                RabbitMQConfig.PAYMENT_NOTIFICATION_EXCHANGE,
-                RabbitMQConfig.PAYMENT_NOTIFICATION_ROUTING_KEY,
-                event
-            );
-
-            log.info("✅ Payment notification event sent to RabbitMQ for transaction: {}", payment.getTransactionId());
-        } catch (Exception e) {
-            log.error("❌ Failed to send payment notification event to RabbitMQ", e);
-            // Don't throw exception - notification failure shouldn't break purchase flow
-        }
+        PaymentNotificationEvent event = new PaymentNotificationEvent();
+        event.setUserId(payment.getUserId());
+        event.setTransactionId(payment.getTransactionId());
+        event.setAmount(payment.getAmount());
+        event.setStatus(status);
+        event.setPaymentType(payment.getPaymentType().name());
+        event.setMessage(message);
+        event.setStoryId(payment.getStoryId()); // Set storyId for PURCHASE notifications
+
+        outboxService.enqueue(
+            RabbitMQConfig.PAYMENT_NOTIFICATION_EXCHANGE,
+            RabbitMQConfig.PAYMENT_NOTIFICATION_ROUTING_KEY,
+            event
+        );
     }
 }
@@ -0,0 +1,13 @@
+-- SQL: support keyset pagination of the story catalog (GET /api/story/catalog)
+-- Run this against your Postgres database for the story-service schema
+
+-- 1) Backfill rows that never had updated_at set so they stay reachable by the cursor
+UPDATE stories SET updated_at = COALESCE(created_at, now()) WHERE updated_at IS NULL;
+
+ALTER TABLE stories ALTER COLUMN updated_at SET NOT NULL;
+
+-- 2) Composite index matching ORDER BY updated_at DESC, id DESC
+CREATE INDEX IF NOT EXISTS idx_stories_updated_at_id ON stories (updated_at DESC, id DESC);
+
+-- Notes:
+-- - The catalog query only reads id, title, cover_image_id, price, author and updated_at.
@@ -0,0 +1,25 @@
+-- SQL: switch chapters / chapter_images ids from IDENTITY to pooled sequences so Hibernate can batch inserts
+-- Run this against your Postgres database for the story-service schema BEFORE deploying the new story-service
+
+-- 1) Sequences used by ChapterEntity / ChapterImageEntity (allocationSize = 50, so INCREMENT BY must match)
+CREATE SEQUENCE IF NOT EXISTS chapters_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS chapter_images_seq INCREMENT BY 50;
+
+-- 2) Start past the existing ids (Hibernate hands out the 50 ids below each value it fetches)
+SELECT setval('chapters_seq', (SELECT coalesce(max(id), 0) + 50 FROM chapters));
+SELECT setval('chapter_images_seq', (SELECT coalesce(max(id), 0) + 50 FROM chapter_images));
+
+-- 3) Drop the identity / serial default and point the column default at the new sequence,
+--    so rows inserted outside story-service (crawler --use-db) never collide with a pooled block
+ALTER TABLE chapters ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE chapters ALTER COLUMN id SET DEFAULT nextval('chapters_seq');
+ALTER TABLE chapter_images ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE chapter_images ALTER COLUMN id SET DEFAULT nextval('chapter_images_seq');
+
+-- 4) Verify: both values must be above max(id)
+-- SELECT last_value FROM chapters_seq;
+-- SELECT last_value FROM chapter_images_seq;
+
+-- Notes:
+-- - Take a DB backup before running these commands.
+-- - The old chapters_id_seq / chapter_images_id_seq (if the tables were created as BIGSERIAL) are no longer used.
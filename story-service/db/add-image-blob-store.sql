@@ -0,0 +1,12 @@
+-- SQL: indexes for the content-addressed image store (public/images/blobs/{h[0:2]}/{h[2:4]}/{sha256}.{ext})
+-- Run this against your Postgres database for the story-service schema
+
+-- 1) Blob files are shared between chapter images; deletes check for remaining references by URL
+CREATE INDEX IF NOT EXISTS idx_chapter_images_url ON chapter_images (url);
+
+-- 2) Uploads look up an existing row with the same checksum to reuse its derivatives
+CREATE INDEX IF NOT EXISTS idx_chapter_images_checksum ON chapter_images (checksum);
+
+-- 3) Rows written before the blob store keep their /public/images/{slug}/{chapter}/NNN.ext URLs.
+--    Those files are no longer moved on story rename or chapter renumber, so the stored URLs stay valid.
+-- SELECT count(*) FROM chapter_images WHERE url NOT LIKE '/public/images/blobs/%';
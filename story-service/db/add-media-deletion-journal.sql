@@ -0,0 +1,20 @@
+-- SQL: durable journal of media files to delete after their metadata is gone
+-- Run this against your Postgres database for the story-service schema
+
+-- 1) Journal table (Hibernate ddl-auto=update creates the same shape; IF NOT EXISTS keeps this idempotent)
+CREATE TABLE IF NOT EXISTS media_deletions (
+    id BIGSERIAL PRIMARY KEY,
+    url VARCHAR(500) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP
+);
+
+-- 2) The reaper polls due entries in next_attempt_at order
+CREATE INDEX IF NOT EXISTS idx_media_deletions_next_attempt ON media_deletions (next_attempt_at);
+
+-- 3) Monitoring: backlog and entries that exhausted their retries (story.media-reaper.max-attempts)
+-- SELECT count(*) FILTER (WHERE attempts < 10) AS pending, count(*) FILTER (WHERE attempts >= 10) AS failed FROM media_deletions;
+-- Re-arm failed entries after fixing the storage problem:
+-- UPDATE media_deletions SET attempts = 0, next_attempt_at = now() WHERE attempts >= 10;
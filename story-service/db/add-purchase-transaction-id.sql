@@ -0,0 +1,16 @@
+-- SQL: record the payment-service transaction on each purchase so redelivered grant events are no-ops
+-- Run this against your Postgres database for the story-service schema
+
+-- 1) New column (Hibernate ddl-auto=update adds the same; IF NOT EXISTS keeps this idempotent)
+ALTER TABLE purchases ADD COLUMN IF NOT EXISTS transaction_id VARCHAR(100);
+
+-- 2) One purchase per transaction; NULLs (direct purchases, older rows) do not conflict
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_purchases_transaction_id') THEN
+        ALTER TABLE purchases ADD CONSTRAINT uk_purchases_transaction_id UNIQUE (transaction_id);
+    END IF;
+END $$;
+
+-- 3) The grant insert relies on ON CONFLICT against both this index and the (user_id, story_id) constraint
+-- SELECT conname FROM pg_constraint WHERE conrelid = 'purchases'::regclass AND contype = 'u';
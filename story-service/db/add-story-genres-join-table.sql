@@ -0,0 +1,40 @@
+-- SQL: normalize story genres into a story_genres join table and backfill it from stories.genres (CSV)
+-- Run this against your Postgres database for the story-service schema
+
+-- 1) Join table (Hibernate ddl-auto=update creates the same shape; IF NOT EXISTS keeps this idempotent)
+CREATE TABLE IF NOT EXISTS story_genres (
+    story_id BIGINT NOT NULL REFERENCES stories(id) ON DELETE CASCADE,
+    genre_id BIGINT NOT NULL REFERENCES genres(id) ON DELETE CASCADE,
+    PRIMARY KEY (story_id, genre_id)
+);
+
+-- Lookups by genre ("stories in genre X", per-genre counts) use this index
+CREATE INDEX IF NOT EXISTS idx_story_genres_genre_id ON story_genres (genre_id, story_id);
+
+-- 2) Make sure every genre name that appears in the CSV column exists in genres
+INSERT INTO genres (name, slug, created_at, updated_at)
+SELECT DISTINCT ON (lower(t.name)) t.name,
+       trim(both '-' from regexp_replace(lower(t.name), '[^a-z0-9]+', '-', 'g')) || '-' || substr(md5(lower(t.name)), 1, 6),
+       now(), now()
+FROM stories s
+CROSS JOIN LATERAL (SELECT trim(x) AS name FROM unnest(string_to_array(s.genres, ',')) AS x) t
+WHERE t.name <> ''
+  AND NOT EXISTS (SELECT 1 FROM genres g WHERE lower(g.name) = lower(t.name))
+ORDER BY lower(t.name), t.name;
+
+-- 3) Backfill links with exact (case-insensitive) name matches, so "Action" no longer matches "Action-Adventure"
+INSERT INTO story_genres (story_id, genre_id)
+SELECT DISTINCT s.id, g.id
+FROM stories s
+CROSS JOIN LATERAL unnest(string_to_array(s.genres, ',')) AS t(name)
+JOIN genres g ON lower(g.name) = lower(trim(t.name))
+ON CONFLICT DO NOTHING;
+
+-- 4) Verify: stories whose CSV lists a genre that has no link
+-- SELECT s.id, s.genres FROM stories s
+-- WHERE s.genres IS NOT NULL AND s.genres <> ''
+--   AND NOT EXISTS (SELECT 1 FROM story_genres sg WHERE sg.story_id = s.id);
+
+-- Notes:
+-- - Take a DB backup before running these commands.
+-- - stories.genres is kept as a display copy; story_genres is the source of truth for lookups and counts.
@@ -0,0 +1,22 @@
+-- SQL: indexes for story full-text search (GET /api/story/search?q=... and ?title=...)
+-- Run this against your Postgres database for the story-service schema
+
+-- search_title / search_body are diacritic-free, lower-cased copies of title / description.
+-- Hibernate ddl-auto=update adds the columns; story-service backfills existing rows on startup.
+ALTER TABLE stories ADD COLUMN IF NOT EXISTS search_title VARCHAR(200);
+ALTER TABLE stories ADD COLUMN IF NOT EXISTS search_body TEXT;
+
+-- 1) Weighted full-text document (title = A, description = B).
+--    The expression must stay identical to StoryRepository.SEARCH_VECTOR or the planner will not use it.
+CREATE INDEX IF NOT EXISTS idx_stories_search_vector ON stories USING GIN (
+    (setweight(to_tsvector('simple', coalesce(search_title, '')), 'A') ||
+     setweight(to_tsvector('simple', coalesce(search_body, '')), 'B'))
+);
+
+-- 2) Trigram index so substring matches on the normalized title (LIKE '%term%') are indexable
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_stories_search_title_trgm ON stories USING GIN (search_title gin_trgm_ops);
+
+-- Notes:
+-- - Take a DB backup before running these commands.
+-- - See db/benchmark-story-search.sql to compare against the previous title-only query.
@@ -0,0 +1,47 @@
+-- Benchmark: previous title search (UPPER(title) LIKE '%term%') vs indexed full-text search
+-- Runs against a scratch table so the real stories table is untouched. Requires pg_trgm.
+-- Usage: psql -d storydb -f story-service/db/benchmark-story-search.sql
+
+\timing on
+
+DROP TABLE IF EXISTS bench_stories;
+CREATE TABLE bench_stories (
+    id BIGSERIAL PRIMARY KEY,
+    title VARCHAR(200) NOT NULL,
+    description TEXT,
+    search_title VARCHAR(200),
+    search_body TEXT
+);
+
+-- 200k synthetic stories; ~1 in 1000 titles contains "than thoai"
+INSERT INTO bench_stories (title, description, search_title, search_body)
+SELECT CASE WHEN g % 1000 = 0 THEN 'Người chơi cấp thần thoại ' || g ELSE 'Truyện số ' || g || ' ' || md5(g::text) END,
+       repeat('Mô tả chương truyện ' || md5((g * 7)::text) || ' ', 20),
+       CASE WHEN g % 1000 = 0 THEN 'nguoi choi cap than thoai ' || g ELSE 'truyen so ' || g || ' ' || md5(g::text) END,
+       repeat('mo ta chuong truyen ' || md5((g * 7)::text) || ' ', 20)
+FROM generate_series(1, 200000) AS g;
+
+CREATE INDEX bench_search_vector ON bench_stories USING GIN (
+    (setweight(to_tsvector('simple', coalesce(search_title, '')), 'A') ||
+     setweight(to_tsvector('simple', coalesce(search_body, '')), 'B'))
+);
+CREATE INDEX bench_search_title_trgm ON bench_stories USING GIN (search_title gin_trgm_ops);
+ANALYZE bench_stories;
+
+-- A) Previous query (findByTitleContainingIgnoreCase): sequential scan, no limit, diacritics must match exactly
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM bench_stories s WHERE upper(s.title) LIKE upper('%thần thoại%') ESCAPE '\';
+
+-- B) New query (StoryRepository.searchRanked): index scans, ranked, first page of 20, diacritics optional
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT s.id, s.title FROM bench_stories s
+WHERE (setweight(to_tsvector('simple', coalesce(s.search_title, '')), 'A') ||
+       setweight(to_tsvector('simple', coalesce(s.search_body, '')), 'B')) @@ to_tsquery('simple', 'than:* & thoai:*')
+   OR s.search_title LIKE '%than thoai%'
+ORDER BY (CASE WHEN s.search_title = 'than thoai' THEN 2 WHEN s.search_title LIKE 'than thoai%' THEN 1 ELSE 0 END)
+       + ts_rank((setweight(to_tsvector('simple', coalesce(s.search_title, '')), 'A') ||
+                  setweight(to_tsvector('simple', coalesce(s.search_body, '')), 'B')), to_tsquery('simple', 'than:* & thoai:*')) DESC,
+         s.id DESC
+LIMIT 21 OFFSET 0;
+
+DROP TABLE bench_stories;
@@ -0,0 +1,33 @@
+-- SQL: move chapter image lists from chapters.image_ids (comma-separated) into chapter_images rows
+-- Run this against your Postgres database for the story-service schema
+
+-- 1) Child table (Hibernate ddl-auto=update creates the same shape; IF NOT EXISTS keeps this idempotent)
+CREATE TABLE IF NOT EXISTS chapter_images (
+    id BIGSERIAL PRIMARY KEY,
+    chapter_id BIGINT NOT NULL REFERENCES chapters(id),
+    position INTEGER NOT NULL,
+    url VARCHAR(500) NOT NULL,
+    created_at TIMESTAMP,
+    CONSTRAINT uk_chapter_image_position UNIQUE (chapter_id, position)
+);
+
+-- 2) Backfill one row per image, keeping the original order as the position (1-based)
+INSERT INTO chapter_images (chapter_id, position, url, created_at)
+SELECT c.id, t.ord, trim(t.url), now()
+FROM chapters c
+CROSS JOIN LATERAL unnest(string_to_array(c.image_ids, ',')) WITH ORDINALITY AS t(url, ord)
+WHERE c.image_ids IS NOT NULL
+  AND c.image_ids <> ''
+  AND trim(t.url) <> ''
+  AND NOT EXISTS (SELECT 1 FROM chapter_images ci WHERE ci.chapter_id = c.id);
+
+-- 3) Verify: image counts per chapter should match the CSV length
+-- SELECT c.id, array_length(string_to_array(c.image_ids, ','), 1) AS csv_count,
+--        (SELECT count(*) FROM chapter_images ci WHERE ci.chapter_id = c.id) AS row_count
+-- FROM chapters c WHERE c.image_ids IS NOT NULL AND c.image_ids <> '';
+
+-- 4) Once verified, the legacy column is no longer read by story-service
+-- ALTER TABLE chapters DROP COLUMN image_ids;
+
+-- Notes:
+-- - Take a DB backup before running these commands.
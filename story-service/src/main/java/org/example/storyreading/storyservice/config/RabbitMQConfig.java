@@ -1,13 +1,20 @@
 package org.example.storyreading.storyservice.config;
 
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.amqp.core.AnonymousQueue;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -18,6 +25,11 @@ public class RabbitMQConfig {
     public static final String STORY_PURCHASE_QUEUE = "story.purchase.queue";
     public static final String STORY_PURCHASE_ROUTING_KEY = "story.purchase.success";
 
+    public static final String PURCHASE_BATCH_CONTAINER_FACTORY = "purchaseBatchContainerFactory";
+
+    // Committed grants are re-broadcast to every story-service instance, so each one clears its entitlement cache
+    public static final String ENTITLEMENT_FANOUT_EXCHANGE = "story.entitlement.fanout";
+
     @Bean
     public Queue storyPurchaseQueue() {
         return new Queue(STORY_PURCHASE_QUEUE, true);
@@ -35,6 +47,50 @@ public class RabbitMQConfig {
                 .with(STORY_PURCHASE_ROUTING_KEY);
     }
 
+    @Bean
+    public FanoutExchange entitlementFanoutExchange() {
+        return new FanoutExchange(ENTITLEMENT_FANOUT_EXCHANGE);
+    }
+
+    // One server-named, auto-delete queue per instance (unlike the competing consumers on the grant queue)
+    @Bean
+    public Queue entitlementBroadcastQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding entitlementBroadcastBinding() {
+        return BindingBuilder.bind(entitlementBroadcastQueue()).to(entitlementFanoutExchange());
+    }
+
+    // Consumer-side batching for purchase grants: up to batch-size messages (or whatever arrived within
+    // batch-receive-timeout-ms) are handed to the listener as one list and acked together
+    @Bean(name = PURCHASE_BATCH_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory purchaseBatchContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${story.purchase-listener.batch-size:100}") int batchSize,
+            @Value("${story.purchase-listener.batch-receive-timeout-ms:200}") long batchReceiveTimeoutMs,
+            @Value("${story.purchase-listener.concurrency:1}") int concurrency,
+            @Value("${story.purchase-listener.retry-attempts:3}") int retryAttempts) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(Math.max(1, batchSize));
+        factory.setPrefetchCount(Math.max(1, batchSize) * 2);
+        factory.setBatchReceiveTimeout(batchReceiveTimeoutMs);
+        factory.setConcurrentConsumers(Math.max(1, concurrency));
+        // Retry the batch in place with backoff, then hand it back to the broker rather than dropping grants
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(Math.max(1, retryAttempts))
+                .backOffOptions(1000, 2.0, 10000)
+                .recoverer((MessageBatchRecoverer) (messages, cause) -> {
+                    throw new ImmediateRequeueAmqpException("Requeueing " + messages.size() + " purchase events", cause);
+                })
+                .build());
+        return factory;
+    }
+
     @Bean
     public MessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -0,0 +1,45 @@
+package org.example.storyreading.storyservice.config;
+
+import org.example.storyreading.storyservice.storage.LocalFileSystemStorage;
+import org.example.storyreading.storyservice.storage.ObjectStorage;
+import org.example.storyreading.storyservice.storage.S3ObjectStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class StorageConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageConfig.class);
+
+    // Default: files under storage.public-dir, served by this service
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+    public ObjectStorage localObjectStorage(@Value("${storage.public-dir:public}") String publicDir) {
+        LocalFileSystemStorage storage = new LocalFileSystemStorage(Path.of(publicDir));
+        log.info("Using local media storage at {}", storage.getRoot());
+        return storage;
+    }
+
+    // S3 or MinIO; media requests are redirected to presigned URLs
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public ObjectStorage s3ObjectStorage(@Value("${storage.s3.endpoint:}") String endpoint,
+                                         @Value("${storage.s3.region:us-east-1}") String region,
+                                         @Value("${storage.s3.bucket:story-media}") String bucket,
+                                         @Value("${storage.s3.access-key:}") String accessKey,
+                                         @Value("${storage.s3.secret-key:}") String secretKey,
+                                         @Value("${storage.s3.path-style:true}") boolean pathStyle,
+                                         @Value("${storage.s3.multipart-threshold:16777216}") long multipartThreshold,
+                                         @Value("${storage.s3.part-size:8388608}") int partSize,
+                                         @Value("${storage.s3.create-bucket:false}") boolean createBucket) {
+        log.info("Using S3 media storage: bucket={} endpoint={}", bucket, endpoint.isBlank() ? "aws" : endpoint);
+        return new S3ObjectStorage(endpoint, region, bucket, accessKey, secretKey, pathStyle,
+                multipartThreshold, partSize, createBucket);
+    }
+}
@@ -22,6 +22,7 @@ public class WebConfig implements WebMvcConfigurer {
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Serve files from configured public directory via /public/**
+        // (/public/images/** is handled by ImageServingController, which wins over this handler)
         String location = "file:" + publicDir + "/";
         registry.addResourceHandler("/public/**")
                 .addResourceLocations(location);
@@ -0,0 +1,33 @@
+package org.example.storyreading.storyservice.controller;
+
+import org.example.storyreading.storyservice.dto.CacheDtos;
+import org.example.storyreading.storyservice.service.impl.EntitlementCache;
+import org.example.storyreading.storyservice.service.impl.StoryReadCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/story/admin/cache")
+public class CacheAdminController {
+
+    private final StoryReadCache storyReadCache;
+    private final EntitlementCache entitlementCache;
+
+    public CacheAdminController(StoryReadCache storyReadCache, EntitlementCache entitlementCache) {
+        this.storyReadCache = storyReadCache;
+        this.entitlementCache = entitlementCache;
+    }
+
+    // Hit/miss counters and current weight of the story/chapter read caches and the entitlement cache
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheDtos.CacheStatsResponse>> stats() {
+        List<CacheDtos.CacheStatsResponse> stats = new ArrayList<>(storyReadCache.stats());
+        stats.add(entitlementCache.stats());
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -5,8 +5,14 @@ import org.example.storyreading.storyservice.service.IChapterService;
 import org.example.storyreading.storyservice.util.JwtUtil;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/story")
@@ -28,9 +34,41 @@ public class ChapterController {
         return ResponseEntity.ok(chapterService.createChapter(storyId, request));
     }
 
+    // Bulk import: one transaction, numbering validated up front, rows written with JDBC batching
+    @PostMapping("/{storyId}/chapters/import")
+    public ResponseEntity<StoryDtos.ChapterImportResponse> importChapters(
+            @RequestHeader(value = "X-User-Id") Long userId,
+            @PathVariable Long storyId,
+            @RequestBody StoryDtos.ChapterImportRequest request) {
+        return ResponseEntity.ok(chapterService.importChapters(storyId, request));
+    }
+
     @GetMapping("/{storyId}/chapters")
-    public ResponseEntity<List<StoryDtos.ChapterResponse>> listChapters(@PathVariable Long storyId) {
-        return ResponseEntity.ok(chapterService.listChapters(storyId));
+    public ResponseEntity<List<StoryDtos.ChapterResponse>> listChapters(@PathVariable Long storyId, WebRequest webRequest) {
+        List<StoryDtos.ChapterResponse> chapters = chapterService.listChapters(storyId);
+        String etag = tocEtag(chapters.stream().map(c -> c.id + "|" + c.chapterNumber + "|" + c.title));
+        if (webRequest.checkNotModified(etag)) {
+            return null; // 304 already written
+        }
+        return ResponseEntity.ok().eTag(etag).body(chapters);
+    }
+
+    // Table of contents page (id, number, title), keyset-paginated by chapter number
+    @GetMapping("/{storyId}/chapters/toc")
+    public ResponseEntity<StoryDtos.ChapterTocPage> getTableOfContents(
+            @PathVariable Long storyId,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(defaultValue = "100") int size,
+            WebRequest webRequest) {
+        StoryDtos.ChapterTocPage page = chapterService.getTableOfContents(storyId, after, size);
+        // hasMore/nextAfter are part of the validator: a new chapter past a full page changes them, not the items
+        String etag = tocEtag(Stream.concat(
+                page.items.stream().map(c -> c.id + "|" + c.chapterNumber + "|" + c.title),
+                Stream.of("more|" + page.hasMore + "|" + page.nextAfter)));
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(page);
     }
 
     @GetMapping("/chapters/{chapterId}")
@@ -48,6 +86,19 @@ public class ChapterController {
         return ResponseEntity.ok(chapterService.getChapterForUser(chapterId, userId));
     }
 
+    // Current chapter + neighbours + entitlement + preload hints for the next chapter
+    @GetMapping("/chapters/{chapterId}/reader")
+    public ResponseEntity<StoryDtos.ReaderBundleResponse> getReaderBundle(
+            @RequestHeader(value = "Authorization", required = false) String authorizationHeader,
+            @RequestHeader(value = "X-User-Id", required = false) Long headerUserId,
+            @PathVariable Long chapterId) {
+        Long userId = headerUserId;
+        if (userId == null && authorizationHeader != null) {
+            userId = jwtUtil.extractUserIdFromHeader(authorizationHeader);
+        }
+        return ResponseEntity.ok(chapterService.getReaderBundle(chapterId, userId));
+    }
+
     @PutMapping("/{storyId}/chapters/{chapterId}")
     public ResponseEntity<StoryDtos.ChapterResponse> updateChapter(
             @RequestHeader(value = "X-User-Id") Long userId,
@@ -65,4 +116,19 @@ public class ChapterController {
         chapterService.deleteChapter(storyId, chapterId);
         return ResponseEntity.noContent().build();
     }
+
+    // Strong ETag over the listed fields, so an unchanged table of contents revalidates with a 304
+    private static String tocEtag(Stream<String> rows) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        rows.forEach(row -> {
+            digest.update(row.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        });
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
 }
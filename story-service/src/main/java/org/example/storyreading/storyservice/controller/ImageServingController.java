@@ -0,0 +1,209 @@
+package org.example.storyreading.storyservice.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.storyreading.storyservice.service.impl.ContentHashCache;
+import org.example.storyreading.storyservice.service.impl.ImageBlobStore;
+import org.example.storyreading.storyservice.storage.ObjectStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves /public/images/** with strong content-hash ETags, 304 revalidation, single byte ranges
+ * and zero-copy transfer (Tomcat sendfile when available, FileChannel.transferTo otherwise).
+ * With a remote {@link ObjectStorage} backend the request is redirected to a presigned URL instead.
+ * Takes precedence over the generic /public/** resource handler in WebConfig.
+ */
+@RestController
+public class ImageServingController {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageServingController.class);
+
+    private static final Pattern RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+    // Names that embed a SHA-256 never change content, so they can be cached forever
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("^[0-9a-f]{64}(\\.w\\d+)?\\.[a-z0-9]+$");
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "public, max-age=300";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final ObjectStorage storage;
+    private final ContentHashCache contentHashCache;
+    private final Duration presignTtl;
+
+    public ImageServingController(ObjectStorage storage,
+                                  ContentHashCache contentHashCache,
+                                  @Value("${storage.presign-ttl-minutes:60}") long presignTtlMinutes) {
+        this.storage = storage;
+        this.contentHashCache = contentHashCache;
+        this.presignTtl = Duration.ofMinutes(presignTtlMinutes);
+    }
+
+    @RequestMapping(value = "/public/images/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String uri = request.getRequestURI().substring(request.getContextPath().length());
+        String key = ImageBlobStore.keyFor(UriUtils.decode(uri, StandardCharsets.UTF_8));
+        if (key == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Optional<Path> local = storage.localPath(key);
+        if (local.isEmpty()) {
+            redirectToBackend(key, response);
+            return;
+        }
+        Path file = local.get();
+        if (!Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!attrs.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = attrs.size();
+        String filename = file.getFileName().toString();
+        boolean contentAddressed = CONTENT_ADDRESSED.matcher(filename).matches();
+        // Blob names already carry the hash; only legacy slug-layout files need hashing
+        String etag = "\"" + (contentAddressed ? filename : contentHashCache.sha256(file, attrs)) + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, attrs.lastModifiedTime().toMillis());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, contentAddressed ? IMMUTABLE : REVALIDATE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        MediaType type = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setContentType(type.toString());
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // A stale If-Range means the client's partial copy is from another version: send the whole file
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file with sendfile(2) after this handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        } catch (IOException e) {
+            // Usually the client went away mid-transfer (page flipped); nothing useful to send back
+            log.debug("Image transfer aborted for {}: {}", file, e.getMessage());
+        }
+    }
+
+    // Remote backends serve bytes, validators and ranges themselves; the redirect is cached for less than the signature lifetime
+    private void redirectToBackend(String key, HttpServletResponse response) throws IOException {
+        Optional<URI> target = storage.presignGet(key, presignTtl);
+        if (target.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + Math.max(0, presignTtl.toSeconds() / 2));
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader(HttpHeaders.LOCATION, target.get().toString());
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return {start, end} for one satisfiable range, an empty array to ignore the header
+     *         (multiple ranges or malformed), or null when the range cannot be satisfied
+     */
+    private static long[] parseRange(String header, long length) {
+        Matcher m = RANGE.matcher(header.trim());
+        if (!m.matches()) return new long[0];
+        String from = m.group(1);
+        String to = m.group(2);
+        if (from.isEmpty() && to.isEmpty()) return new long[0];
+        try {
+            long start;
+            long end;
+            if (from.isEmpty()) {
+                long suffix = Long.parseLong(to);
+                if (suffix == 0) return null;
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(from);
+                end = to.isEmpty() ? length - 1 : Math.min(Long.parseLong(to), length - 1);
+            }
+            if (start >= length || start > end) return null;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
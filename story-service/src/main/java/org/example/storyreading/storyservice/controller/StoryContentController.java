@@ -1,27 +1,34 @@
 package org.example.storyreading.storyservice.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.storyreading.storyservice.dto.StoryDtos;
 import org.example.storyreading.storyservice.entity.ChapterEntity;
+import org.example.storyreading.storyservice.entity.ChapterImageEntity;
 import org.example.storyreading.storyservice.entity.StoryEntity;
+import org.example.storyreading.storyservice.repository.ChapterImageRepository;
 import org.example.storyreading.storyservice.repository.ChapterRepository;
 import org.example.storyreading.storyservice.repository.StoryRepository;
-import org.example.storyreading.storyservice.util.SlugUtil;
+import org.example.storyreading.storyservice.service.impl.ChapterImageUploader;
+import org.example.storyreading.storyservice.service.impl.ImageBlobStore;
+import org.example.storyreading.storyservice.service.impl.ImageDerivativeService;
+import org.example.storyreading.storyservice.service.impl.StoryReadCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -31,37 +38,72 @@ public class StoryContentController {
 
     private static final Logger log = LoggerFactory.getLogger(StoryContentController.class);
 
-    private final Path IMAGES_DIR;
-
     private final StoryRepository storyRepository;
     private final ChapterRepository chapterRepository;
+    private final ChapterImageRepository chapterImageRepository;
+    private final StoryReadCache readCache;
+    private final ChapterImageUploader chapterImageUploader;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ImageBlobStore imageBlobStore;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
 
     public StoryContentController(StoryRepository storyRepository,
                                   ChapterRepository chapterRepository,
-                                  @Value("${storage.public-dir:public}") String publicDir) {
+                                  ChapterImageRepository chapterImageRepository,
+                                  StoryReadCache readCache,
+                                  ChapterImageUploader chapterImageUploader,
+                                  ImageDerivativeService imageDerivativeService,
+                                  ImageBlobStore imageBlobStore,
+                                  ObjectMapper objectMapper,
+                                  TransactionTemplate transactionTemplate) {
         this.storyRepository = storyRepository;
         this.chapterRepository = chapterRepository;
-        this.IMAGES_DIR = Path.of(publicDir).resolve("images");
-        log.info("StoryContentController using images dir: {}", this.IMAGES_DIR.toAbsolutePath());
+        this.chapterImageRepository = chapterImageRepository;
+        this.readCache = readCache;
+        this.chapterImageUploader = chapterImageUploader;
+        this.imageDerivativeService = imageDerivativeService;
+        this.imageBlobStore = imageBlobStore;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @PostMapping("/{storyId}/cover")
     public ResponseEntity<String> uploadCover(@PathVariable Long storyId,
                                               @RequestParam("file") MultipartFile file) throws IOException {
         StoryEntity s = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
-        String slug = getSlugFromStory(s);
 
-        String ext = getExtension(file.getOriginalFilename());
-        Path storyDir = IMAGES_DIR.resolve(slug);
-        Files.createDirectories(storyDir);
-        Path target = storyDir.resolve("cover" + (ext.isEmpty() ? "" : "." + ext));
-        Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
-        String url = "/public/images/" + slug + "/" + target.getFileName();
+        ImageBlobStore.StoredBlob blob = imageBlobStore.store(file.getInputStream(), file.getOriginalFilename());
+        String url = blob.url;
+        String previous = s.getCoverImageId();
 
-        s.setCoverImageId(url);
-        storyRepository.save(s);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // The cover may be deduplicated onto a blob whose deletion is due; hold it until the story commits
+                try {
+                    imageBlobStore.retain(List.of(url));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                s.setCoverImageId(url);
+                storyRepository.save(s);
+                if (previous != null && !previous.equals(url)) {
+                    imageBlobStore.release(List.of(previous));
+                }
+            });
+        } catch (RuntimeException e) {
+            imageBlobStore.release(List.of(url));
+            if (e instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+        readCache.evictStory(storyId);
+        if (!blob.deduplicated) {
+            imageDerivativeService.enqueueCover(blob.key);
+        }
 
-        log.info("Saved cover to: {} (url={})", target.toAbsolutePath(), url);
+        log.info("Saved cover to: {} (url={})", blob.key, url);
         return ResponseEntity.ok(url);
     }
 
@@ -70,45 +112,48 @@ public class StoryContentController {
                                                             @PathVariable int chapterNumber,
                                                             @RequestParam("files") List<MultipartFile> files) throws IOException {
         StoryEntity s = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
-        String slug = getSlugFromStory(s);
 
-        Path chapterDir = IMAGES_DIR.resolve(slug).resolve(String.valueOf(chapterNumber));
-        Files.createDirectories(chapterDir);
-        List<String> urls = new ArrayList<>();
-        int idx = 1;
-        for (MultipartFile f : files) {
-            String ext = getExtension(f.getOriginalFilename());
-            String filename = String.format("%03d%s", idx++, ext.isEmpty() ? "" : "." + ext);
-            Path target = chapterDir.resolve(filename);
-            Files.copy(f.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
-            urls.add("/public/images/" + slug + "/" + chapterNumber + "/" + filename);
-            log.info("Saved chapter image to: {}", target.toAbsolutePath());
-        }
+        List<StoryDtos.ImageUploadProgress> stored = chapterImageUploader.upload(s, chapterNumber, files, progress -> { });
+        List<String> urls = stored.stream().map(p -> p.url).collect(Collectors.toList());
+        return ResponseEntity.ok(urls);
+    }
 
-        // Persist the image URLs into chapter entity (append if exists)
-        Optional<ChapterEntity> maybeChapter = chapterRepository.findByStoryAndChapterNumber(s, chapterNumber);
-        ChapterEntity chapter;
-        if (maybeChapter.isPresent()) {
-            chapter = maybeChapter.get();
-            String existing = chapter.getImageIds();
-            List<String> all;
-            if (existing == null || existing.isEmpty()) {
-                all = new ArrayList<>(urls);
-            } else {
-                all = new ArrayList<>(Arrays.asList(existing.split(",")));
-                all.addAll(urls);
-            }
-            chapter.setImageIds(String.join(",", all));
-        } else {
-            chapter = new ChapterEntity();
-            chapter.setStory(s);
-            chapter.setChapterNumber(chapterNumber);
-            chapter.setTitle("Chapter " + chapterNumber);
-            chapter.setImageIds(String.join(",", urls));
-        }
-        chapterRepository.save(chapter);
+    // Same as uploadChapterImages, but streams one NDJSON line per file as it is stored, then a final summary line
+    @PostMapping(value = "/{storyId}/chapters/{chapterNumber}/images/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> uploadChapterImagesWithProgress(@PathVariable Long storyId,
+                                                                                 @PathVariable int chapterNumber,
+                                                                                 @RequestParam("files") List<MultipartFile> files) {
+        StoryEntity s = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
 
-        return ResponseEntity.ok(urls);
+        StreamingResponseBody body = out -> {
+            Object lock = new Object();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            try {
+                List<StoryDtos.ImageUploadProgress> stored = chapterImageUploader.upload(s, chapterNumber, files, progress -> {
+                    synchronized (lock) {
+                        try {
+                            out.write(objectMapper.writeValueAsBytes(progress));
+                            out.write('\n');
+                            out.flush();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+                summary.put("status", "COMMITTED");
+                summary.put("urls", stored.stream().map(p -> p.url).collect(Collectors.toList()));
+            } catch (IOException | RuntimeException e) {
+                log.error("Chapter image upload failed for story {} chapter {}: {}", storyId, chapterNumber, e.getMessage());
+                summary.put("status", "FAILED");
+                summary.put("error", e.getMessage());
+            }
+            synchronized (lock) {
+                out.write(objectMapper.writeValueAsBytes(summary));
+                out.write('\n');
+                out.flush();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
     }
 
     // Delete one or multiple images from a chapter (by filename or by index)
@@ -119,141 +164,44 @@ public class StoryContentController {
             @RequestParam(required = false) List<String> filename,
             @RequestParam(required = false) Integer index) {
         StoryEntity s = storyRepository.findById(storyId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Story not found"));
-        String slug = getSlugFromStory(s);
-        Path chapterDir = IMAGES_DIR.resolve(slug).resolve(String.valueOf(chapterNumber));
 
         ChapterEntity chapter = chapterRepository.findByStoryAndChapterNumber(s, chapterNumber).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Chapter not found"));
-        String existing = chapter.getImageIds();
-        if (existing == null || existing.isEmpty()) {
+        List<ChapterImageEntity> images = new ArrayList<>(chapterImageRepository.findByChapterOrderByPositionAsc(chapter));
+        if (images.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No images to delete");
         }
-        List<String> images = new ArrayList<>(Arrays.asList(existing.split(",")));
 
-        List<String> removed = new ArrayList<>();
-        try {
-            if (filename != null && !filename.isEmpty()) {
-                // accept filenames or full urls
-                for (String fn : filename) {
-                    String fnTrim = fn.trim();
-                    String targetUrl;
-                    if (fnTrim.startsWith("/")) {
-                        targetUrl = fnTrim;
-                      } else if (fnTrim.contains("/public/images/")) {
-                        targetUrl = fnTrim.substring(fnTrim.indexOf("/public/images/"));
-                      } else {
-                        targetUrl = "/public/images/" + slug + "/" + chapterNumber + "/" + fnTrim;
-                      }
-                    int idxToRemove = images.indexOf(targetUrl);
-                    if (idxToRemove >= 0) {
-                        // delete file on disk
-                        String fileName = targetUrl.substring(targetUrl.lastIndexOf('/') + 1);
-                        Path targetPath = chapterDir.resolve(fileName);
-                        Files.deleteIfExists(targetPath);
-                        removed.add(targetUrl);
-                        images.remove(idxToRemove);
-                    }
-                }
-            } else if (index != null) {
-                int i = index - 1; // 1-based to 0-based
-                if (i < 0 || i >= images.size()) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Index out of range");
-                }
-                String targetUrl = images.get(i);
-                String fileName = targetUrl.substring(targetUrl.lastIndexOf('/') + 1);
-                Path targetPath = chapterDir.resolve(fileName);
-                Files.deleteIfExists(targetPath);
-                removed.add(targetUrl);
-                images.remove(i);
-            } else {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Provide filename(s) or index to delete");
+        List<ChapterImageEntity> targets = new ArrayList<>();
+        if (filename != null && !filename.isEmpty()) {
+            // accept filenames or full urls
+            for (String fn : filename) {
+                findImage(images, fn).ifPresent(match -> {
+                    targets.add(match);
+                    images.remove(match);
+                });
             }
-
-        } catch (IOException e) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to delete image files: " + e.getMessage());
+        } else if (index != null) {
+            int i = index - 1; // 1-based to 0-based
+            if (i < 0 || i >= images.size()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Index out of range");
+            }
+            targets.add(images.get(i));
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Provide filename(s) or index to delete");
         }
 
-        // Normalize remaining image paths to slug-based structure
-        List<String> normalizedImages = normalizeImagePaths(images, slug, chapterNumber);
+        List<String> removed = targets.stream().map(ChapterImageEntity::getUrl).collect(Collectors.toList());
+        chapterImageRepository.deleteAll(targets);
+        // Blobs may be shared with other chapters; files go only when nothing references them any more
+        imageBlobStore.release(removed);
 
-        chapter.setImageIds(normalizedImages.isEmpty() ? null : String.join(",", normalizedImages));
-        chapterRepository.save(chapter);
-        List<String> normalizedRemoved = normalizeImagePaths(removed, slug, chapterNumber);
-        return ResponseEntity.ok(normalizedRemoved);
+        // Only the removed rows were deleted; remaining pages keep their rows and positions
+        readCache.evictChapter(storyId, chapter.getId());
+        return ResponseEntity.ok(removed);
     }
 
     // Replace an existing image (by filename or index) with uploaded file. Keep the filename so order remains.
 //    @PutMapping("/{storyId}/chapters/{chapterNumber}/images/replace")
-//    public ResponseEntity<String> replaceChapterImage(
-//            @PathVariable Long storyId,
-//            @PathVariable int chapterNumber,
-//            @RequestParam(required = false) String filename,
-//            @RequestParam(required = false) Integer index,
-//            @RequestParam("file") MultipartFile file) {
-//        StoryEntity s = storyRepository.findById(storyId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Story not found"));
-//        String slug = SlugUtil.slugify(s.getTitle());
-//        Path chapterDir = IMAGES_DIR.resolve(slug).resolve(String.valueOf(chapterNumber));
-//
-//        ChapterEntity chapter = chapterRepository.findByStoryAndChapterNumber(s, chapterNumber).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Chapter not found"));
-//        String existing = chapter.getImageIds();
-//        if (existing == null || existing.isEmpty()) {
-//            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No images to replace");
-//        }
-//        List<String> images = new ArrayList<>(Arrays.asList(existing.split(",")));
-//
-//        String targetFileName = null;
-//        int targetIndex = -1;
-//        if (filename != null && !filename.isEmpty()) {
-//            // allow filename or full URL
-//            String fnTrim = filename.trim();
-//            String targetUrl;
-//            if (fnTrim.startsWith("/")) {
-//                targetUrl = fnTrim;
-//            } else if (fnTrim.contains("/public/images/")) {
-//                targetUrl = fnTrim.substring(fnTrim.indexOf("/public/images/"));
-//            } else {
-//                targetUrl = "/public/images/" + slug + "/" + chapterNumber + "/" + fnTrim;
-//            }
-//            targetIndex = images.indexOf(targetUrl);
-//            if (targetIndex < 0) {
-//                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Filename not found in chapter images");
-//            }
-//            targetFileName = targetUrl.substring(targetUrl.lastIndexOf('/') + 1);
-//        } else if (index != null) {
-//            int i = index - 1;
-//            if (i < 0 || i >= images.size()) {
-//                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Index out of range");
-//            }
-//            targetIndex = i;
-//            String targetUrl = images.get(i);
-//            targetFileName = targetUrl.substring(targetUrl.lastIndexOf('/') + 1);
-//        } else {
-//            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Provide filename or index to replace");
-//        }
-//
-//        try {
-//            Files.createDirectories(chapterDir);
-//            Path targetPath = chapterDir.resolve(targetFileName);
-//            // Overwrite existing file keeping the same filename so URLs remain consistent and order preserved
-//            Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-//        } catch (IOException e) {
-//            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to write replacement file: " + e.getMessage());
-//        }
-//
-//        // No change needed to images list if filename unchanged; but persist to ensure DB consistency
-//        chapter.setImageIds(String.join(",", images));
-//        chapterRepository.save(chapter);
-//
-//        String returnedUrl = "/public/images/" + slug + "/" + chapterNumber + "/" + targetFileName;
-//        return ResponseEntity.ok(returnedUrl);
-//    }
-
-    private String getExtension(String original) {
-        if (!StringUtils.hasText(original) || !original.contains(".")) return "";
-        String ext = original.substring(original.lastIndexOf('.') + 1);
-        return ext.toLowerCase();
-    }
-
-    @PutMapping("/{storyId}/chapters/{chapterNumber}/images/replace")
     public ResponseEntity<List<String>> replaceChapterImages(
             @PathVariable Long storyId,
             @PathVariable int chapterNumber,
@@ -263,16 +211,13 @@ public class StoryContentController {
 
         StoryEntity s = storyRepository.findById(storyId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Story not found"));
-        String slug = SlugUtil.slugify(s.getTitle());
-        Path chapterDir = IMAGES_DIR.resolve(slug).resolve(String.valueOf(chapterNumber));
 
         ChapterEntity chapter = chapterRepository.findByStoryAndChapterNumber(s, chapterNumber)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Chapter not found"));
-        String existing = chapter.getImageIds();
-        if (existing == null || existing.isEmpty()) {
+        List<ChapterImageEntity> images = chapterImageRepository.findByChapterOrderByPositionAsc(chapter);
+        if (images.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No images to replace");
         }
-        List<String> images = new ArrayList<>(Arrays.asList(existing.split(",")));
 
         if ((filename == null || filename.isEmpty()) && (index == null || index.isEmpty())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Provide filename(s) or index(es) to replace");
@@ -281,96 +226,74 @@ public class StoryContentController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No files uploaded for replacement");
         }
 
-        // Determine mapping between uploaded files and target filenames
-        List<String> targetFileNames = new ArrayList<>();
-        try {
-            if (filename != null && !filename.isEmpty()) {
-                if (filename.size() != files.size()) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Number of filename parameters must match number of uploaded files");
-                }
-                for (String fn : filename) {
-                    String fnTrim = fn.trim();
-                    String targetUrl;
-                    if (fnTrim.startsWith("/")) {
-                        targetUrl = fnTrim;
-                    } else if (fnTrim.contains("/public/images/")) {
-                        targetUrl = fnTrim.substring(fnTrim.indexOf("/public/images/"));
-                    } else {
-                        targetUrl = "/public/images/" + slug + "/" + chapterNumber + "/" + fnTrim;
-                    }
-                    int targetIndex = images.indexOf(targetUrl);
-                    if (targetIndex < 0) {
-                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Filename not found in chapter images: " + fnTrim);
-                    }
-                    String targetFileName = targetUrl.substring(targetUrl.lastIndexOf('/') + 1);
-                    targetFileNames.add(targetFileName);
-                }
-            } else {
-                // index provided
-                if (index.size() != files.size()) {
-                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Number of index parameters must match number of uploaded files");
+        // Determine mapping between uploaded files and the image rows they replace
+        List<ChapterImageEntity> targets = new ArrayList<>();
+        if (filename != null && !filename.isEmpty()) {
+            if (filename.size() != files.size()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Number of filename parameters must match number of uploaded files");
+            }
+            for (String fn : filename) {
+                targets.add(findImage(images, fn).orElseThrow(() ->
+                        new ResponseStatusException(HttpStatus.BAD_REQUEST, "Filename not found in chapter images: " + fn.trim())));
+            }
+        } else {
+            // index provided
+            if (index.size() != files.size()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Number of index parameters must match number of uploaded files");
+            }
+            for (Integer idx : index) {
+                if (idx == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Null index provided");
                 }
-                for (Integer idx : index) {
-                    if (idx == null) {
-                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Null index provided");
-                    }
-                    int i = idx - 1;
-                    if (i < 0 || i >= images.size()) {
-                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Index out of range: " + idx);
-                    }
-                    String targetUrl = images.get(i);
-                    String targetFileName = targetUrl.substring(targetUrl.lastIndexOf('/') + 1);
-                    targetFileNames.add(targetFileName);
+                int i = idx - 1;
+                if (i < 0 || i >= images.size()) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Index out of range: " + idx);
                 }
+                targets.add(images.get(i));
             }
+        }
 
-            // Write each uploaded file to its corresponding target filename (overwrite)
-            Files.createDirectories(chapterDir);
-            List<String> replacedUrls = new ArrayList<>();
+        // New content gets a new blob; the row keeps its position, so reading order is unchanged
+        List<String> replacedUrls = new ArrayList<>();
+        List<String> previousUrls = new ArrayList<>();
+        try {
             for (int i = 0; i < files.size(); i++) {
                 MultipartFile f = files.get(i);
-                String targetFileName = targetFileNames.get(i);
-                Path targetPath = chapterDir.resolve(targetFileName);
-                Files.copy(f.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
-                replacedUrls.add("/public/images/" + slug + "/" + chapterNumber + "/" + targetFileName);
-                log.info("Replaced chapter image: {}", targetPath.toAbsolutePath());
+                ChapterImageEntity row = targets.get(i);
+                ImageBlobStore.StoredBlob blob = imageBlobStore.store(f.getInputStream(), f.getOriginalFilename());
+                previousUrls.add(row.getUrl());
+                row.setUrl(blob.url);
+                row.setChecksum(blob.sha256);
+                row.setSizeBytes(blob.sizeBytes);
+                row.setWidth(null);
+                row.setHeight(null);
+                row.setVariantFormat(null);
+                row.setVariantWidths(null);
+                row.setPlaceholder(null);
+                replacedUrls.add(blob.url);
+                log.info("Replaced chapter image at position {} with {}", row.getPosition(), blob.url);
             }
-
-            // Persist imageIds unchanged (but save to ensure DB sync)
-            chapter.setImageIds(String.join(",", images));
-            chapterRepository.save(chapter);
-
-            return ResponseEntity.ok(replacedUrls);
-
         } catch (IOException e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to write replacement files: " + e.getMessage());
         }
-    }
+        chapterImageRepository.saveAll(targets);
+        previousUrls.removeAll(replacedUrls);
+        imageBlobStore.release(previousUrls);
 
-    private String getSlugFromStory(StoryEntity story) {
-        String cover = story.getCoverImageId();
-        if (StringUtils.hasText(cover) && cover.contains("/public/images/")) {
-            String remainder = cover.substring(cover.indexOf("/public/images/") + "/public/images/".length());
-            int slashIndex = remainder.indexOf('/');
-            if (slashIndex > 0) {
-                return remainder.substring(0, slashIndex);
-            }
+        // Regenerate derivatives for the new content
+        for (ChapterImageEntity row : targets) {
+            imageDerivativeService.enqueueChapterImage(storyId, chapter.getId(), row.getId(), ImageBlobStore.keyFor(row.getUrl()));
         }
-        return SlugUtil.slugify(story.getTitle());
+        readCache.evictChapter(storyId, chapter.getId());
+        return ResponseEntity.ok(replacedUrls);
     }
 
-    private List<String> normalizeImagePaths(List<String> urls, String slug, int chapterNumber) {
-        List<String> normalized = new ArrayList<>();
-        if (urls == null) return normalized;
-        for (String url : urls) {
-            if (!StringUtils.hasText(url)) continue;
-            String normalizedUrl = url;
-            if (!url.contains("/public/images/" + slug + "/" + chapterNumber + "/")) {
-                String filename = url.substring(url.lastIndexOf('/') + 1);
-                normalizedUrl = "/public/images/" + slug + "/" + chapterNumber + "/" + filename;
-            }
-            normalized.add(normalizedUrl);
-        }
-        return normalized;
+    // Match a chapter image by full url, "/public/images/..." suffix, or bare file name
+    private Optional<ChapterImageEntity> findImage(List<ChapterImageEntity> images, String reference) {
+        String ref = reference.trim();
+        String targetUrl = ref.contains("/public/images/") ? ref.substring(ref.indexOf("/public/images/")) : null;
+        return images.stream()
+                .filter(img -> targetUrl != null ? img.getUrl().equals(targetUrl) : img.getUrl().endsWith("/" + ref))
+                .findFirst();
     }
 }
@@ -36,6 +36,14 @@ public class StoryController {
         return ResponseEntity.ok(storyService.listStories());
     }
 
+    // Paginated catalog with a slim projection; pass nextCursor from the previous page to continue
+    @GetMapping("/catalog")
+    public ResponseEntity<StoryDtos.StoryCatalogPage> listCatalog(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(storyService.listCatalog(cursor, size));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<StoryDtos.StoryResponse> updateStory(
             @RequestHeader(value = "X-User-Id") Long userId,
@@ -53,11 +61,20 @@ public class StoryController {
     }
 
     // Search stories by title (partial, case-insensitive)
-    @GetMapping("/search")
+    @GetMapping(value = "/search", params = "title")
     public ResponseEntity<List<StoryDtos.StoryResponse>> searchByTitle(@RequestParam("title") String title) {
         return ResponseEntity.ok(storyService.searchByTitle(title));
     }
 
+    // Full-text search over title and description, ranked and paginated (page starts at 0)
+    @GetMapping(value = "/search", params = "q")
+    public ResponseEntity<StoryDtos.StorySearchPage> search(
+            @RequestParam("q") String query,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(storyService.search(query, page, size));
+    }
+
     // Get stories by genre with pagination (page starts at 0)
     @GetMapping("/genre/{genre}")
     public ResponseEntity<List<StoryDtos.StoryResponse>> getByGenre(
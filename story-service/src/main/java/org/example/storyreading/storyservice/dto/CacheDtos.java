@@ -0,0 +1,14 @@
+package org.example.storyreading.storyservice.dto;
+
+public class CacheDtos {
+
+    public static class CacheStatsResponse {
+        public String name;
+        public long hitCount;
+        public long missCount;
+        public double hitRate;
+        public long evictionCount;
+        public long estimatedSize;
+        public long weightedSizeBytes;
+    }
+}
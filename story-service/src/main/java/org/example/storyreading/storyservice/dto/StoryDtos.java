@@ -22,6 +22,25 @@ public class StoryDtos {
         public long price;
         public String author;
     }
+    public static class StorySummaryResponse {
+        public Long id;
+        public String title;
+        public String coverImageId;
+        public boolean paid;
+        public long price;
+        public String author;
+    }
+    public static class StoryCatalogPage {
+        public List<StorySummaryResponse> items;
+        public String nextCursor;
+        public boolean hasMore;
+    }
+    public static class StorySearchPage {
+        public List<StorySummaryResponse> items;
+        public int page;
+        public int size;
+        public boolean hasMore;
+    }
     public static class CreateChapterRequest {
         public int chapterNumber;
         public String title;
@@ -33,6 +52,59 @@ public class StoryDtos {
         public int chapterNumber;
         public String title;
         public List<String> imageIds;
+        public List<ChapterImage> images;
+    }
+    // Many chapters in one request, e.g. a whole series from the crawler
+    public static class ChapterImportRequest {
+        public List<CreateChapterRequest> chapters;
+        public boolean skipExisting; // true: numbers that already exist are skipped instead of failing the import
+    }
+    public static class ChapterImportResponse {
+        public int created;
+        public int skipped;
+        public List<ChapterSummary> chapters; // created chapters in chapter-number order
+    }
+    public static class ChapterSummary {
+        public Long id;
+        public int chapterNumber;
+        public String title;
+    }
+    public static class ChapterTocPage {
+        public List<ChapterSummary> items;
+        public Integer nextAfter; // pass as ?after= for the next page; null on the last page
+        public boolean hasMore;
+    }
+    // Everything the reader needs to show a chapter and move to the next one in a single round trip
+    public static class ReaderBundleResponse {
+        public ChapterResponse chapter; // images omitted when not entitled
+        public boolean entitled;
+        public String access; // FREE, FREE_FIRST_CHAPTER, PURCHASED, LOGIN_REQUIRED, PURCHASE_REQUIRED
+        public Long previousChapterId;
+        public Long nextChapterId;
+        public List<ChapterImage> nextPreload; // first pages of the next chapter, when it is readable
+    }
+    public static class ChapterImage {
+        public String url;
+        public Integer width;
+        public Integer height;
+        public String placeholder;
+        public List<ImageVariant> variants;
+    }
+    public static class ImageVariant {
+        public int width;
+        public String format;
+        public String url;
+    }
+    public static class ImageUploadProgress {
+        public int index;
+        public int position;
+        public String originalFilename;
+        public String url;
+        public long sizeBytes;
+        public String sha256;
+        public String status;
+        public int completed;
+        public int total;
     }
     public static class PurchaseRequest { }
     public static class PurchaseResponse {
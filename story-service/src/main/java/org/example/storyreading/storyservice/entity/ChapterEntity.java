@@ -8,8 +8,10 @@ import java.time.LocalDateTime;
 @Table(name = "chapters", uniqueConstraints = @UniqueConstraint(name = "uk_story_chapter_number", columnNames = {"story_id", "chapter_number"}))
 public class ChapterEntity {
 
+    // Pooled sequence (see db/add-chapter-id-sequences.sql) so bulk imports can use JDBC batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chapters_seq")
+    @SequenceGenerator(name = "chapters_seq", sequenceName = "chapters_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -22,9 +24,6 @@ public class ChapterEntity {
     @Column(nullable = false, length = 200)
     private String title;
 
-    @Column(name = "image_ids", columnDefinition = "TEXT")
-    private String imageIds; // comma-separated image ids stored at content-service
-
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -36,8 +35,6 @@ public class ChapterEntity {
     public void setChapterNumber(int chapterNumber) { this.chapterNumber = chapterNumber; }
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
-    public String getImageIds() { return imageIds; }
-    public void setImageIds(String imageIds) { this.imageIds = imageIds; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 }
@@ -0,0 +1,85 @@
+package org.example.storyreading.storyservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "chapter_images",
+        uniqueConstraints = @UniqueConstraint(name = "uk_chapter_image_position", columnNames = {"chapter_id", "position"}),
+        indexes = {
+                @Index(name = "idx_chapter_images_url", columnList = "url"),
+                @Index(name = "idx_chapter_images_checksum", columnList = "checksum")
+        })
+public class ChapterImageEntity {
+
+    // Sequence ids (not IDENTITY) so page rows of an import are batched with their chapters
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chapter_images_seq")
+    @SequenceGenerator(name = "chapter_images_seq", sequenceName = "chapter_images_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "chapter_id", nullable = false)
+    private ChapterEntity chapter;
+
+    // Reading order within the chapter; gaps are allowed after deletes
+    @Column(name = "position", nullable = false)
+    private int position;
+
+    // Content-addressed blob URL (/public/images/blobs/..); older rows may still use the slug layout
+    @Column(nullable = false, length = 500)
+    private String url;
+
+    // SHA-256 of the stored file, computed while it was written; also the blob key
+    @Column(length = 64)
+    private String checksum;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    // Original dimensions, filled in by the derivative pipeline
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    // Derivatives live next to the original as "{name}.w{width}.{variantFormat}", so rows sharing a blob share them
+    @Column(name = "variant_format", length = 10)
+    private String variantFormat;
+
+    @Column(name = "variant_widths")
+    private Integer[] variantWidths;
+
+    @Column(columnDefinition = "TEXT")
+    private String placeholder; // tiny base64 data URI shown blurred while the page loads
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public ChapterEntity getChapter() { return chapter; }
+    public void setChapter(ChapterEntity chapter) { this.chapter = chapter; }
+    public int getPosition() { return position; }
+    public void setPosition(int position) { this.position = position; }
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+    public Long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+    public Integer getWidth() { return width; }
+    public void setWidth(Integer width) { this.width = width; }
+    public Integer getHeight() { return height; }
+    public void setHeight(Integer height) { this.height = height; }
+    public String getVariantFormat() { return variantFormat; }
+    public void setVariantFormat(String variantFormat) { this.variantFormat = variantFormat; }
+    public Integer[] getVariantWidths() { return variantWidths; }
+    public void setVariantWidths(Integer[] variantWidths) { this.variantWidths = variantWidths; }
+    public String getPlaceholder() { return placeholder; }
+    public void setPlaceholder(String placeholder) { this.placeholder = placeholder; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,45 @@
+package org.example.storyreading.storyservice.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Durable "delete this file later" journal; rows are written in the same transaction as the metadata delete
+@Entity
+@Table(name = "media_deletions", indexes = @Index(name = "idx_media_deletions_next_attempt", columnList = "next_attempt_at"))
+public class MediaDeletionEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Public URL of the object (/public/images/...); the reaper maps it to a storage key
+    @Column(nullable = false, length = 500)
+    private String url;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // Not picked up before this time: grace period on insert, lease while claimed, backoff after a failure
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
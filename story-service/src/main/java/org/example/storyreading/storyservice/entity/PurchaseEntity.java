@@ -5,7 +5,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "purchases", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "story_id"}))
+@Table(name = "purchases", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"user_id", "story_id"}),
+        @UniqueConstraint(name = "uk_purchases_transaction_id", columnNames = "transaction_id")
+})
 public class PurchaseEntity {
 
     @Id
@@ -19,6 +22,10 @@ public class PurchaseEntity {
     @JoinColumn(name = "story_id", nullable = false)
     private StoryEntity story;
 
+    // payment-service transaction that granted the purchase; null for direct purchases. Makes redelivered events no-ops.
+    @Column(name = "transaction_id", length = 100)
+    private String transactionId;
+
     @Column(name = "purchased_at", nullable = false)
     private LocalDateTime purchasedAt = LocalDateTime.now();
 
@@ -28,6 +35,8 @@ public class PurchaseEntity {
     public void setUserId(Long userId) { this.userId = userId; }
     public StoryEntity getStory() { return story; }
     public void setStory(StoryEntity story) { this.story = story; }
+    public String getTransactionId() { return transactionId; }
+    public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
     public LocalDateTime getPurchasedAt() { return purchasedAt; }
     public void setPurchasedAt(LocalDateTime purchasedAt) { this.purchasedAt = purchasedAt; }
 }
@@ -1,10 +1,14 @@
 package org.example.storyreading.storyservice.entity;
 
 import jakarta.persistence.*;
+import org.example.storyreading.storyservice.util.SearchTextUtil;
+
 import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @Entity
-@Table(name = "stories")
+@Table(name = "stories", indexes = @Index(name = "idx_stories_updated_at_id", columnList = "updated_at DESC, id DESC"))
 public class StoryEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -17,7 +21,21 @@ public class StoryEntity {
     private String description;
 
     @Column(length = 200)
-    private String genres;
+    private String genres; // comma-separated display copy, kept in sync with genreEntities
+
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "story_genres",
+            joinColumns = @JoinColumn(name = "story_id"),
+            inverseJoinColumns = @JoinColumn(name = "genre_id"),
+            indexes = @Index(name = "idx_story_genres_genre_id", columnList = "genre_id, story_id"))
+    private Set<GenreEntity> genreEntities = new LinkedHashSet<>();
+
+    // Diacritic-free, lower-cased copies of title/description used by full-text search
+    @Column(name = "search_title", length = 200)
+    private String searchTitle;
+
+    @Column(name = "search_body", columnDefinition = "TEXT")
+    private String searchBody;
 
     @Column(name = "cover_image_id", length = 100)
     private String coverImageId;
@@ -36,6 +54,22 @@ public class StoryEntity {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt = LocalDateTime.now();
 
+    @PrePersist
+    public void onCreate() {
+        refreshSearchText();
+    }
+
+    @PreUpdate
+    public void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+        refreshSearchText();
+    }
+
+    public void refreshSearchText() {
+        this.searchTitle = SearchTextUtil.normalize(title);
+        this.searchBody = SearchTextUtil.normalize(description);
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     public String getTitle() { return title; }
@@ -44,6 +78,10 @@ public class StoryEntity {
     public void setDescription(String description) { this.description = description; }
     public String getGenres() { return genres; }
     public void setGenres(String genres) { this.genres = genres; }
+    public Set<GenreEntity> getGenreEntities() { return genreEntities; }
+    public void setGenreEntities(Set<GenreEntity> genreEntities) { this.genreEntities = genreEntities; }
+    public String getSearchTitle() { return searchTitle; }
+    public String getSearchBody() { return searchBody; }
     public String getCoverImageId() { return coverImageId; }
     public void setCoverImageId(String coverImageId) { this.coverImageId = coverImageId; }
     public String getAuthor() { return author; }
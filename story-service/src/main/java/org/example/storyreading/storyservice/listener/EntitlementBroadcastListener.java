@@ -0,0 +1,24 @@
+package org.example.storyreading.storyservice.listener;
+
+import org.example.storyreading.storyservice.dto.StoryPurchaseEvent;
+import org.example.storyreading.storyservice.service.impl.EntitlementCache;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EntitlementBroadcastListener {
+
+    private final EntitlementCache entitlementCache;
+
+    public EntitlementBroadcastListener(EntitlementCache entitlementCache) {
+        this.entitlementCache = entitlementCache;
+    }
+
+    // Every instance gets every committed grant (including its own, which is a no-op), so a reader refused
+    // just before buying is not kept out by this instance's negative cache entry
+    @RabbitListener(queues = "#{entitlementBroadcastQueue.name}")
+    public void handleGrant(StoryPurchaseEvent event) {
+        if (event.getUserId() == null || event.getStoryId() == null) return;
+        entitlementCache.recordPurchase(event.getUserId(), event.getStoryId());
+    }
+}
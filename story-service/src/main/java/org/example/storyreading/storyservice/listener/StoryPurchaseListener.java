@@ -5,34 +5,71 @@ import org.example.storyreading.storyservice.dto.StoryPurchaseEvent;
 import org.example.storyreading.storyservice.service.impl.PurchaseService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Component
 public class StoryPurchaseListener {
 
     private static final Logger log = LoggerFactory.getLogger(StoryPurchaseListener.class);
 
     private final PurchaseService purchaseService;
+    private final MessageConverter messageConverter;
 
     // Constructor thay thế cho @RequiredArgsConstructor
-    public StoryPurchaseListener(PurchaseService purchaseService) {
+    public StoryPurchaseListener(PurchaseService purchaseService, MessageConverter messageConverter) {
         this.purchaseService = purchaseService;
+        this.messageConverter = messageConverter;
     }
 
-    @RabbitListener(queues = RabbitMQConfig.STORY_PURCHASE_QUEUE)
-    public void handleStoryPurchase(StoryPurchaseEvent event) {
-        log.info("Received story purchase event: userId={}, storyId={}, transactionId={}",
-                event.getUserId(), event.getStoryId(), event.getTransactionId());
+    // Messages arrive in batches and are acked together once the batch is stored.
+    // A database failure throws, so the batch is retried and then requeued; the insert is idempotent.
+    @RabbitListener(queues = RabbitMQConfig.STORY_PURCHASE_QUEUE,
+            containerFactory = RabbitMQConfig.PURCHASE_BATCH_CONTAINER_FACTORY)
+    public void handleStoryPurchases(List<Message> messages) {
+        List<StoryPurchaseEvent> events = new ArrayList<>(messages.size());
+        Set<String> seen = new HashSet<>();
+        for (Message message : messages) {
+            StoryPurchaseEvent event = toEvent(message);
+            if (event == null) continue;
+            // The same purchase can appear twice in one batch after a redelivery
+            String key = event.getTransactionId() != null
+                    ? event.getTransactionId()
+                    : event.getUserId() + ":" + event.getStoryId();
+            if (seen.add(key)) {
+                events.add(event);
+            }
+        }
+        if (events.isEmpty()) return;
+
+        int inserted = purchaseService.grantAccess(events);
+        log.info("Granted story access for {} purchase events ({} new, {} already granted or unknown story)",
+                events.size(), inserted, events.size() - inserted);
+    }
 
+    // Unreadable messages are logged and acked with the batch instead of blocking it forever
+    private StoryPurchaseEvent toEvent(Message message) {
         try {
-            purchaseService.grantAccess(event.getUserId(), event.getStoryId());
-            log.info("Successfully granted access for userId={}, storyId={}",
-                    event.getUserId(), event.getStoryId());
+            // The __TypeId__ header names payment-service's class, so convert to ours explicitly
+            message.getMessageProperties().setInferredArgumentType(StoryPurchaseEvent.class);
+            StoryPurchaseEvent event = (StoryPurchaseEvent) messageConverter.fromMessage(message);
+            if (event.getUserId() == null || event.getStoryId() == null) {
+                log.error("Dropping story purchase event without userId/storyId: messageId={}",
+                        message.getMessageProperties().getMessageId());
+                return null;
+            }
+            return event;
         } catch (Exception e) {
-            log.error("Failed to grant access: {}", e.getMessage(), e);
-            // In production, you might want to implement a dead letter queue
-            // or retry mechanism here
+            log.error("Dropping unreadable story purchase message {}: {}",
+                    message.getMessageProperties().getMessageId(), e.getMessage());
+            return null;
         }
     }
 }
@@ -0,0 +1,57 @@
+package org.example.storyreading.storyservice.repository;
+
+import org.example.storyreading.storyservice.entity.ChapterEntity;
+import org.example.storyreading.storyservice.entity.ChapterImageEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ChapterImageRepository extends JpaRepository<ChapterImageEntity, Long> {
+
+    // Image URLs of a chapter in reading order
+    @Query("select i.url from ChapterImageEntity i where i.chapter.id = :chapterId order by i.position")
+    List<String> findUrlsByChapterId(@Param("chapterId") Long chapterId);
+
+    List<ChapterImageEntity> findByChapterOrderByPositionAsc(ChapterEntity chapter);
+
+    List<ChapterImageEntity> findByChapterIdOrderByPositionAsc(Long chapterId);
+
+    Optional<ChapterImageEntity> findFirstByChapterAndUrl(ChapterEntity chapter, String url);
+
+    // Blobs are shared across chapters; a file may only be deleted once no row points at it
+    boolean existsByUrl(String url);
+
+    // Another row with the same content whose derivatives are already generated
+    Optional<ChapterImageEntity> findFirstByChecksumAndVariantFormatIsNotNull(String checksum);
+
+    // Next position for appends is max + 1, so existing rows are never rewritten
+    @Query("select coalesce(max(i.position), 0) from ChapterImageEntity i where i.chapter.id = :chapterId")
+    int findMaxPosition(@Param("chapterId") Long chapterId);
+
+    @Transactional
+    @Modifying
+    @Query("update ChapterImageEntity i set i.width = :width, i.height = :height, i.variantFormat = :format, " +
+            "i.variantWidths = :variantWidths, i.placeholder = :placeholder where i.id = :id")
+    int updateDerivatives(@Param("id") Long id,
+                          @Param("width") Integer width,
+                          @Param("height") Integer height,
+                          @Param("format") String format,
+                          @Param("variantWidths") Integer[] variantWidths,
+                          @Param("placeholder") String placeholder);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ChapterImageEntity i where i.chapter.id = :chapterId")
+    int deleteByChapterId(@Param("chapterId") Long chapterId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM chapter_images WHERE chapter_id IN (SELECT id FROM chapters WHERE story_id = :storyId)",
+            nativeQuery = true)
+    int deleteByStoryId(@Param("storyId") Long storyId);
+}
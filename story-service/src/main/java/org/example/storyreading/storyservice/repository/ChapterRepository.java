@@ -1,8 +1,14 @@
 package org.example.storyreading.storyservice.repository;
 
+import jakarta.persistence.LockModeType;
 import org.example.storyreading.storyservice.entity.ChapterEntity;
 import org.example.storyreading.storyservice.entity.StoryEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,4 +18,34 @@ public interface ChapterRepository extends JpaRepository<ChapterEntity, Long> {
 
     // Finder used when uploading images for a specific chapter number
     Optional<ChapterEntity> findByStoryAndChapterNumber(StoryEntity story, int chapterNumber);
+
+    // SELECT ... FOR UPDATE: serializes uploads that append images to the same chapter
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ChapterEntity c where c.story.id = :storyId and c.chapterNumber = :chapterNumber")
+    Optional<ChapterEntity> findForUpdate(@Param("storyId") Long storyId, @Param("chapterNumber") int chapterNumber);
+
+    // Numbers already taken, loaded once so an import validates in memory instead of probing per chapter
+    @Query("select c.chapterNumber from ChapterEntity c where c.story.id = :storyId")
+    List<Integer> findChapterNumbersByStoryId(@Param("storyId") Long storyId);
+
+    // Full table of contents in reading order (served from uk_story_chapter_number)
+    @Query("select c.id as id, c.chapterNumber as chapterNumber, c.title as title from ChapterEntity c " +
+            "where c.story.id = :storyId order by c.chapterNumber asc")
+    List<ChapterSummaryView> findTocByStoryId(@Param("storyId") Long storyId);
+
+    // First keyset page: no lower bound, so chapter 0 is included
+    @Query("select c.id as id, c.chapterNumber as chapterNumber, c.title as title from ChapterEntity c " +
+            "where c.story.id = :storyId order by c.chapterNumber asc")
+    List<ChapterSummaryView> findTocFirstPage(@Param("storyId") Long storyId, Pageable pageable);
+
+    // Keyset page: chapters after a given number; pass a Pageable of size + 1 to detect more rows
+    @Query("select c.id as id, c.chapterNumber as chapterNumber, c.title as title from ChapterEntity c " +
+            "where c.story.id = :storyId and c.chapterNumber > :afterNumber order by c.chapterNumber asc")
+    List<ChapterSummaryView> findTocPage(@Param("storyId") Long storyId,
+                                         @Param("afterNumber") int afterNumber,
+                                         Pageable pageable);
+
+    @Modifying
+    @Query("delete from ChapterEntity c where c.story.id = :storyId")
+    int deleteByStoryId(@Param("storyId") Long storyId);
 }
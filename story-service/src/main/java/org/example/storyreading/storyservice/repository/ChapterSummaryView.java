@@ -0,0 +1,10 @@
+package org.example.storyreading.storyservice.repository;
+
+/**
+ * Table-of-contents row: only what the chapter list shows, no image rows.
+ */
+public interface ChapterSummaryView {
+    Long getId();
+    int getChapterNumber();
+    String getTitle();
+}
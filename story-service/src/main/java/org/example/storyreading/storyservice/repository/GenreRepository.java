@@ -2,7 +2,9 @@ package org.example.storyreading.storyservice.repository;
 
 import org.example.storyreading.storyservice.entity.GenreEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface GenreRepository extends JpaRepository<GenreEntity, Long> {
@@ -10,5 +12,13 @@ public interface GenreRepository extends JpaRepository<GenreEntity, Long> {
     boolean existsBySlug(String slug);
     Optional<GenreEntity> findByNameIgnoreCase(String name);
     Optional<GenreEntity> findBySlug(String slug);
+
+    // All genres with their story counts in one grouped query over the story_genres join table
+    @Query(value = "SELECT g.id AS id, g.name AS name, g.slug AS slug, g.description AS description, " +
+            "COUNT(sg.story_id) AS \"storyCount\" " +
+            "FROM genres g LEFT JOIN story_genres sg ON sg.genre_id = g.id " +
+            "GROUP BY g.id, g.name, g.slug, g.description " +
+            "ORDER BY g.name ASC", nativeQuery = true)
+    List<GenreStoryCountView> findAllWithStoryCount();
 }
 
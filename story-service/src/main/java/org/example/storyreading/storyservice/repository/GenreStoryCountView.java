@@ -0,0 +1,12 @@
+package org.example.storyreading.storyservice.repository;
+
+/**
+ * Genre row together with the number of stories linked to it.
+ */
+public interface GenreStoryCountView {
+    Long getId();
+    String getName();
+    String getSlug();
+    String getDescription();
+    long getStoryCount();
+}
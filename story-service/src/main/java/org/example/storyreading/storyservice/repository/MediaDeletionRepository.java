@@ -0,0 +1,55 @@
+package org.example.storyreading.storyservice.repository;
+
+import org.example.storyreading.storyservice.entity.MediaDeletionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface MediaDeletionRepository extends JpaRepository<MediaDeletionEntity, Long> {
+
+    // Due entries, skipping rows another instance has locked; call inside a transaction and lease the result
+    @Query(value = "SELECT * FROM media_deletions WHERE next_attempt_at <= :now AND attempts < :maxAttempts " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<MediaDeletionEntity> lockDue(@Param("now") LocalDateTime now,
+                                      @Param("maxAttempts") int maxAttempts,
+                                      @Param("limit") int limit);
+
+    @Modifying
+    @Query("update MediaDeletionEntity d set d.nextAttemptAt = :leaseUntil where d.id in :ids")
+    int lease(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("update MediaDeletionEntity d set d.attempts = d.attempts + 1, d.nextAttemptAt = :nextAttemptAt, " +
+            "d.lastError = :error where d.id = :id")
+    int recordFailure(@Param("id") Long id,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("delete from MediaDeletionEntity d where d.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Per-URL lock held until commit; the reaper and every transaction that adds a reference take it, so a
+    // blob cannot be deleted between the reaper's reference check and a new chapter image row committing
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(:url))) l", nativeQuery = true)
+    Integer lockUrl(@Param("url") String url);
+
+    @Modifying
+    @Query("delete from MediaDeletionEntity d where d.url in :urls")
+    int deleteByUrlIn(@Param("urls") Collection<String> urls);
+
+    // Journal every image of a story in one statement (a large story has thousands of pages)
+    @Modifying
+    @Query(value = "INSERT INTO media_deletions (url, attempts, next_attempt_at, created_at) " +
+            "SELECT DISTINCT i.url, 0, :notBefore, now() FROM chapter_images i " +
+            "JOIN chapters c ON c.id = i.chapter_id WHERE c.story_id = :storyId", nativeQuery = true)
+    int journalStoryImages(@Param("storyId") Long storyId, @Param("notBefore") LocalDateTime notBefore);
+}
@@ -3,12 +3,36 @@ package org.example.storyreading.storyservice.repository;
 import org.example.storyreading.storyservice.entity.PurchaseEntity;
 import org.example.storyreading.storyservice.entity.StoryEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface PurchaseRepository extends JpaRepository<PurchaseEntity, Long> {
     boolean existsByUserIdAndStory(Long userId, StoryEntity story);
     Optional<PurchaseEntity> findByUserIdAndStory(Long userId, StoryEntity story);
+    boolean existsByUserIdAndStoryId(Long userId, Long storyId);
+
+    // All story ids a user owns; loaded once per user into the entitlement cache
+    @Query("select p.story.id from PurchaseEntity p where p.userId = :userId")
+    List<Long> findStoryIdsByUserId(@Param("userId") Long userId);
+
+    // Grants a batch of purchases in one statement. Rows for unknown stories are dropped, and rows whose
+    // (user, story) or transaction id already exists are skipped, so redelivered events are harmless.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO purchases (user_id, story_id, transaction_id, purchased_at) " +
+            "SELECT g.user_id, g.story_id, g.transaction_id, now() " +
+            "FROM unnest(CAST(:userIds AS bigint[]), CAST(:storyIds AS bigint[]), CAST(:transactionIds AS varchar[])) " +
+            "AS g(user_id, story_id, transaction_id) " +
+            "WHERE EXISTS (SELECT 1 FROM stories s WHERE s.id = g.story_id) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertGrants(@Param("userIds") Long[] userIds,
+                     @Param("storyIds") Long[] storyIds,
+                     @Param("transactionIds") String[] transactionIds);
 }
 
 
@@ -4,18 +4,78 @@ import org.example.storyreading.storyservice.entity.StoryEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface StoryRepository extends JpaRepository<StoryEntity, Long> {
-    // Find by title (partial, case-insensitive)
-    List<StoryEntity> findByTitleContainingIgnoreCase(String title);
+    // Weighted document (title = A, description = B); must match idx_stories_search_vector exactly
+    String SEARCH_VECTOR = "(setweight(to_tsvector('simple', coalesce(s.search_title, '')), 'A') || " +
+            "setweight(to_tsvector('simple', coalesce(s.search_body, '')), 'B'))";
 
-    // Find by genre contained in the comma-separated genres column (case-insensitive) with pagination
-    Page<StoryEntity> findByGenresContainingIgnoreCase(String genre, Pageable pageable);
+    // Find by normalized title (partial); served by the search_title trigram index
+    List<StoryEntity> findBySearchTitleContaining(String normalizedTitle, Pageable pageable);
 
-    // Find all stories containing a specific genre (case-insensitive)
-    List<StoryEntity> findByGenresContainingIgnoreCase(String genre);
+    // Ranked full-text search over title and description; exact/prefix title hits rank first
+    @Query(value = "SELECT s.id AS id, s.title AS title, s.cover_image_id AS \"coverImageId\", s.price AS price, " +
+            "s.author AS author, s.updated_at AS \"updatedAt\" FROM stories s " +
+            "WHERE " + SEARCH_VECTOR + " @@ to_tsquery('simple', :tsQuery) " +
+            "OR s.search_title LIKE CONCAT('%', :likeTerm, '%') " +
+            "ORDER BY (CASE WHEN s.search_title = :term THEN 2 " +
+            "WHEN s.search_title LIKE CONCAT(:likeTerm, '%') THEN 1 ELSE 0 END) " +
+            "+ ts_rank(" + SEARCH_VECTOR + ", to_tsquery('simple', :tsQuery)) DESC, s.id DESC " +
+            "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<StorySummaryView> searchRanked(@Param("term") String term,
+                                        @Param("likeTerm") String likeTerm,
+                                        @Param("tsQuery") String tsQuery,
+                                        @Param("limit") int limit,
+                                        @Param("offset") int offset);
 
-    long countByGenresContainingIgnoreCase(String genre);
+    // Row lock on the story without loading it; serializes creation of a missing chapter
+    @Query(value = "SELECT id FROM stories WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Long lockById(@Param("id") Long id);
+
+    // Stories created before the search columns existed
+    @Query("select s from StoryEntity s where s.searchTitle is null")
+    List<StoryEntity> findMissingSearchText(Pageable pageable);
+
+    // Bulk update so backfilling does not trigger @PreUpdate (which would bump updatedAt)
+    @Modifying
+    @Query("update StoryEntity s set s.searchTitle = :searchTitle, s.searchBody = :searchBody where s.id = :id")
+    int updateSearchText(@Param("id") Long id,
+                         @Param("searchTitle") String searchTitle,
+                         @Param("searchBody") String searchBody);
+
+    // Find stories linked to a genre through the story_genres join table, with pagination
+    @Query(value = "select s from StoryEntity s join s.genreEntities g where g.id = :genreId order by s.id",
+            countQuery = "select count(s) from StoryEntity s join s.genreEntities g where g.id = :genreId")
+    Page<StoryEntity> findByGenreId(@Param("genreId") Long genreId, Pageable pageable);
+
+    // Find all stories linked to a genre
+    @Query("select s from StoryEntity s join s.genreEntities g where g.id = :genreId")
+    List<StoryEntity> findByGenreId(@Param("genreId") Long genreId);
+
+    @Query("select count(s) from StoryEntity s join s.genreEntities g where g.id = :genreId")
+    long countByGenreId(@Param("genreId") Long genreId);
+
+    // Covers are stored in the shared blob store too
+    boolean existsByCoverImageId(String coverImageId);
+
+    // Catalog first page: newest updated first, id as tie-breaker (backed by idx_stories_updated_at_id)
+    @Query("select s.id as id, s.title as title, s.coverImageId as coverImageId, s.price as price, " +
+            "s.author as author, s.updatedAt as updatedAt from StoryEntity s " +
+            "order by s.updatedAt desc, s.id desc")
+    List<StorySummaryView> findCatalogPage(Pageable pageable);
+
+    // Catalog next page: rows strictly after the (updatedAt, id) cursor
+    @Query("select s.id as id, s.title as title, s.coverImageId as coverImageId, s.price as price, " +
+            "s.author as author, s.updatedAt as updatedAt from StoryEntity s " +
+            "where s.updatedAt < :updatedAt or (s.updatedAt = :updatedAt and s.id < :id) " +
+            "order by s.updatedAt desc, s.id desc")
+    List<StorySummaryView> findCatalogPageAfter(@Param("updatedAt") LocalDateTime updatedAt,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
 }
@@ -0,0 +1,16 @@
+package org.example.storyreading.storyservice.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Slim projection of a story used by the catalog listing.
+ * Deliberately leaves out the TEXT description and the genres column.
+ */
+public interface StorySummaryView {
+    Long getId();
+    String getTitle();
+    String getCoverImageId();
+    long getPrice();
+    String getAuthor();
+    LocalDateTime getUpdatedAt();
+}
@@ -6,8 +6,12 @@ import java.util.List;
 
 public interface IChapterService {
     StoryDtos.ChapterResponse createChapter(Long storyId, StoryDtos.CreateChapterRequest request);
+    StoryDtos.ChapterImportResponse importChapters(Long storyId, StoryDtos.ChapterImportRequest request);
     List<StoryDtos.ChapterResponse> listChapters(Long storyId);
+    // afterNumber = null for the first page (chapter numbers start at 0)
+    StoryDtos.ChapterTocPage getTableOfContents(Long storyId, Integer afterNumber, int size);
     StoryDtos.ChapterResponse getChapterForUser(Long chapterId, Long userId);
+    StoryDtos.ReaderBundleResponse getReaderBundle(Long chapterId, Long userId);
     StoryDtos.ChapterResponse updateChapter(Long storyId, Long chapterId, StoryDtos.CreateChapterRequest request);
     void deleteChapter(Long storyId, Long chapterId);
 }
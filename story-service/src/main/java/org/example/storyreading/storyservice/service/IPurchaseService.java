@@ -1,9 +1,13 @@
 package org.example.storyreading.storyservice.service;
 
 import org.example.storyreading.storyservice.dto.StoryDtos;
+import org.example.storyreading.storyservice.dto.StoryPurchaseEvent;
+
+import java.util.List;
 
 public interface IPurchaseService {
     StoryDtos.PurchaseResponse purchaseStory(Long userId, Long storyId);
     boolean hasPurchased(Long userId, Long storyId);
     void grantAccess(Long userId, Long storyId);
+    int grantAccess(List<StoryPurchaseEvent> events);
 }
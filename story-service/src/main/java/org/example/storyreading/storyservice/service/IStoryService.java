@@ -8,12 +8,18 @@ public interface IStoryService {
     StoryDtos.StoryResponse createStory(Long authorId, StoryDtos.CreateStoryRequest request);
     StoryDtos.StoryResponse getStory(Long id);
     List<StoryDtos.StoryResponse> listStories();
+
+    // Keyset-paginated catalog ordered by updatedAt desc, id desc (cursor is null for the first page)
+    StoryDtos.StoryCatalogPage listCatalog(String cursor, int size);
     StoryDtos.StoryResponse updateStory(Long authorId, Long storyId, StoryDtos.UpdateStoryRequest request);
     void deleteStory(Long authorId, Long storyId);
 
     // Search stories by title (partial, case-insensitive)
     List<StoryDtos.StoryResponse> searchByTitle(String title);
 
+    // Ranked, diacritic-insensitive search over title and description with pagination
+    StoryDtos.StorySearchPage search(String query, int page, int size);
+
     // Get stories by genre with pagination
     List<StoryDtos.StoryResponse> getStoriesByGenre(String genre, int page, int size);
     
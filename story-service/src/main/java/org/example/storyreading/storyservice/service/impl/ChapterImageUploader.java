@@ -0,0 +1,212 @@
+package org.example.storyreading.storyservice.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.example.storyreading.storyservice.dto.StoryDtos;
+import org.example.storyreading.storyservice.entity.ChapterEntity;
+import org.example.storyreading.storyservice.entity.ChapterImageEntity;
+import org.example.storyreading.storyservice.entity.StoryEntity;
+import org.example.storyreading.storyservice.repository.ChapterImageRepository;
+import org.example.storyreading.storyservice.repository.ChapterRepository;
+import org.example.storyreading.storyservice.repository.StoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Writes chapter pages into the content-addressed {@link ImageBlobStore} on a bounded I/O pool
+ * and commits all image rows for the batch in a single transaction once every file is on disk.
+ */
+@Component
+public class ChapterImageUploader {
+
+    private static final Logger log = LoggerFactory.getLogger(ChapterImageUploader.class);
+
+    private final ChapterRepository chapterRepository;
+    private final ChapterImageRepository chapterImageRepository;
+    private final StoryRepository storyRepository;
+    private final StoryReadCache readCache;
+    private final ImageDerivativeService derivativeService;
+    private final ImageBlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService ioPool;
+
+    public ChapterImageUploader(ChapterRepository chapterRepository,
+                                ChapterImageRepository chapterImageRepository,
+                                StoryRepository storyRepository,
+                                StoryReadCache readCache,
+                                ImageDerivativeService derivativeService,
+                                ImageBlobStore blobStore,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${story.upload.parallelism:4}") int parallelism) {
+        this.chapterRepository = chapterRepository;
+        this.chapterImageRepository = chapterImageRepository;
+        this.storyRepository = storyRepository;
+        this.readCache = readCache;
+        this.derivativeService = derivativeService;
+        this.blobStore = blobStore;
+        this.transactionTemplate = transactionTemplate;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.ioPool = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "chapter-upload-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioPool.shutdown();
+    }
+
+    /**
+     * Append the uploaded files to a chapter (creating the chapter if needed).
+     * Files are written in parallel; positions are assigned in request order inside the commit
+     * transaction while the chapter row is locked, so concurrent uploads to the same chapter append
+     * after each other. Progress reported to {@code listener} (once per file) therefore carries the
+     * request index only; the returned list has the committed positions.
+     */
+    public List<StoryDtos.ImageUploadProgress> upload(StoryEntity story, int chapterNumber,
+                                                      List<MultipartFile> files,
+                                                      Consumer<StoryDtos.ImageUploadProgress> listener) throws IOException {
+        int total = files.size();
+        AtomicInteger completed = new AtomicInteger();
+        List<CompletableFuture<StoryDtos.ImageUploadProgress>> tasks = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            MultipartFile file = files.get(i);
+            int index = i;
+            tasks.add(CompletableFuture.supplyAsync(() -> {
+                StoryDtos.ImageUploadProgress progress = writeFile(file, index);
+                progress.total = total;
+                progress.completed = completed.incrementAndGet();
+                listener.accept(progress);
+                return progress;
+            }, ioPool));
+        }
+
+        List<StoryDtos.ImageUploadProgress> results = new ArrayList<>(total);
+        IOException failure = null;
+        for (CompletableFuture<StoryDtos.ImageUploadProgress> task : tasks) {
+            try {
+                results.add(task.join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                if (failure == null) {
+                    failure = cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+                }
+            }
+        }
+        if (failure != null) {
+            // Nothing was committed yet; blobs this batch created are unreferenced and get removed
+            blobStore.release(results.stream().map(r -> r.url).toList());
+            throw failure;
+        }
+
+        List<ChapterImageEntity> rows = new ArrayList<>(results.size());
+        List<ChapterImageEntity> needDerivatives = new ArrayList<>();
+        Long chapterId;
+        try {
+            chapterId = transactionTemplate.execute(status -> {
+                ChapterEntity chapter = lockOrCreateChapter(story, chapterNumber);
+                // Keeps the reaper off these blobs until the rows commit (some may be deduplicated onto old blobs)
+                try {
+                    blobStore.retain(results.stream().map(r -> r.url).toList());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                // Read under the chapter lock, so a concurrent upload cannot take the same positions
+                int position = chapterImageRepository.findMaxPosition(chapter.getId());
+                for (StoryDtos.ImageUploadProgress r : results) {
+                    r.position = ++position;
+                    ChapterImageEntity image = new ChapterImageEntity();
+                    image.setChapter(chapter);
+                    image.setPosition(r.position);
+                    image.setUrl(r.url);
+                    image.setChecksum(r.sha256);
+                    image.setSizeBytes(r.sizeBytes);
+                    // A re-uploaded page reuses the derivatives already generated for the same blob
+                    Optional<ChapterImageEntity> twin = chapterImageRepository.findFirstByChecksumAndVariantFormatIsNotNull(r.sha256);
+                    if (twin.isPresent() && twin.get().getUrl().equals(r.url)) {
+                        copyDerivatives(twin.get(), image);
+                    } else {
+                        needDerivatives.add(image);
+                    }
+                    rows.add(image);
+                }
+                chapterImageRepository.saveAll(rows);
+                return chapter.getId();
+            });
+        } catch (RuntimeException e) {
+            // The rows were rolled back, so nothing references the blobs this batch stored
+            blobStore.release(results.stream().map(r -> r.url).toList());
+            if (e instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+        readCache.evictChapter(story.getId(), chapterId);
+
+        // Derivatives are generated off the request path once the rows exist
+        for (ChapterImageEntity row : needDerivatives) {
+            derivativeService.enqueueChapterImage(story.getId(), chapterId, row.getId(), ImageBlobStore.keyFor(row.getUrl()));
+        }
+        return results;
+    }
+
+    // Existing chapter: lock its row. Missing chapter: lock the story row first so two uploads that
+    // both create it are serialized, then look again before inserting.
+    private ChapterEntity lockOrCreateChapter(StoryEntity story, int chapterNumber) {
+        return chapterRepository.findForUpdate(story.getId(), chapterNumber).orElseGet(() -> {
+            storyRepository.lockById(story.getId());
+            return chapterRepository.findForUpdate(story.getId(), chapterNumber).orElseGet(() -> {
+                ChapterEntity created = new ChapterEntity();
+                created.setStory(story);
+                created.setChapterNumber(chapterNumber);
+                created.setTitle("Chapter " + chapterNumber);
+                return chapterRepository.saveAndFlush(created);
+            });
+        });
+    }
+
+    private StoryDtos.ImageUploadProgress writeFile(MultipartFile file, int index) {
+        ImageBlobStore.StoredBlob blob;
+        try (InputStream in = file.getInputStream()) {
+            blob = blobStore.store(in, file.getOriginalFilename());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + file.getOriginalFilename() + ": " + e.getMessage(), e);
+        }
+        log.info("Stored chapter image {} as {}{}", file.getOriginalFilename(), blob.url, blob.deduplicated ? " (deduplicated)" : "");
+
+        StoryDtos.ImageUploadProgress progress = new StoryDtos.ImageUploadProgress();
+        progress.index = index;
+        progress.originalFilename = file.getOriginalFilename();
+        progress.url = blob.url;
+        progress.sizeBytes = blob.sizeBytes;
+        progress.sha256 = blob.sha256;
+        progress.status = blob.deduplicated ? "DEDUPLICATED" : "STORED";
+        return progress;
+    }
+
+    private static void copyDerivatives(ChapterImageEntity from, ChapterImageEntity to) {
+        to.setWidth(from.getWidth());
+        to.setHeight(from.getHeight());
+        to.setVariantFormat(from.getVariantFormat());
+        to.setVariantWidths(from.getVariantWidths());
+        to.setPlaceholder(from.getPlaceholder());
+    }
+}
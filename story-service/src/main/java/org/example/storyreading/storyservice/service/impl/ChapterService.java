@@ -2,43 +2,75 @@ package org.example.storyreading.storyservice.service.impl;
 
 import org.example.storyreading.storyservice.dto.StoryDtos;
 import org.example.storyreading.storyservice.entity.ChapterEntity;
+import org.example.storyreading.storyservice.entity.ChapterImageEntity;
 import org.example.storyreading.storyservice.entity.StoryEntity;
+import org.example.storyreading.storyservice.repository.ChapterImageRepository;
 import org.example.storyreading.storyservice.repository.ChapterRepository;
-import org.example.storyreading.storyservice.repository.PurchaseRepository;
+import org.example.storyreading.storyservice.repository.ChapterSummaryView;
 import org.example.storyreading.storyservice.repository.StoryRepository;
 import org.example.storyreading.storyservice.service.IChapterService;
-import org.example.storyreading.storyservice.util.SlugUtil;
+import org.example.storyreading.storyservice.util.ImageDerivativeGenerator;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.IOException;
-import java.nio.file.*;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service
 public class ChapterService implements IChapterService {
 
+    private static final int MAX_TOC_PAGE_SIZE = 500;
+
+    // Entitlement decisions reported by the reader bundle
+    private static final String ACCESS_FREE = "FREE";
+    private static final String ACCESS_FREE_FIRST_CHAPTER = "FREE_FIRST_CHAPTER";
+    private static final String ACCESS_PURCHASED = "PURCHASED";
+    private static final String ACCESS_LOGIN_REQUIRED = "LOGIN_REQUIRED";
+    private static final String ACCESS_PURCHASE_REQUIRED = "PURCHASE_REQUIRED";
+
     private final ChapterRepository chapterRepository;
+    private final ChapterImageRepository chapterImageRepository;
     private final StoryRepository storyRepository;
-    private final PurchaseRepository purchaseRepository;
-    private final Path publicImagesDir;
+    private final StoryReadCache readCache;
+    private final EntitlementCache entitlementCache;
+    private final ImageBlobStore imageBlobStore;
+    private final EntityManager entityManager;
+    private final int preloadPages;
+    private final int maxImportChapters;
+    private final int importFlushEvery;
 
     public ChapterService(ChapterRepository chapterRepository,
+                          ChapterImageRepository chapterImageRepository,
                           StoryRepository storyRepository,
-                          PurchaseRepository purchaseRepository,
-                          @Value("${storage.public-dir:public}") String publicDir) {
+                          StoryReadCache readCache,
+                          EntitlementCache entitlementCache,
+                          ImageBlobStore imageBlobStore,
+                          EntityManager entityManager,
+                          @Value("${story.reader.preload-pages:3}") int preloadPages,
+                          @Value("${story.import.max-chapters:5000}") int maxImportChapters,
+                          @Value("${story.import.flush-every:200}") int importFlushEvery) {
         this.chapterRepository = chapterRepository;
+        this.chapterImageRepository = chapterImageRepository;
         this.storyRepository = storyRepository;
-        this.purchaseRepository = purchaseRepository;
-        this.publicImagesDir = Paths.get(publicDir).resolve("images");
+        this.readCache = readCache;
+        this.entitlementCache = entitlementCache;
+        this.imageBlobStore = imageBlobStore;
+        this.entityManager = entityManager;
+        this.preloadPages = Math.max(0, preloadPages);
+        this.maxImportChapters = maxImportChapters;
+        this.importFlushEvery = Math.max(1, importFlushEvery);
     }
 
     @Override
+    @Transactional
     public StoryDtos.ChapterResponse createChapter(Long storyId, StoryDtos.CreateChapterRequest request) {
         StoryEntity story = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
 
@@ -52,47 +84,210 @@ public class ChapterService implements IChapterService {
         c.setStory(story);
         c.setChapterNumber(request.chapterNumber);
         c.setTitle(request.title);
-        c.setImageIds(request.imageIds == null ? null : String.join(",", request.imageIds));
         c = chapterRepository.save(c);
+        saveImages(c, request.imageIds, 1);
+        readCache.evictChapter(storyId, null);
         return toDto(c);
     }
 
     @Override
-    public List<StoryDtos.ChapterResponse> listChapters(Long storyId) {
+    @Transactional
+    public StoryDtos.ChapterImportResponse importChapters(Long storyId, StoryDtos.ChapterImportRequest request) {
         StoryEntity story = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
-        return chapterRepository.findByStoryOrderByChapterNumberAsc(story)
-                .stream().map(this::toDtoListChapter).collect(Collectors.toList());
+        if (request == null || request.chapters == null || request.chapters.isEmpty()) {
+            throw new IllegalArgumentException("Import contains no chapters");
+        }
+        if (request.chapters.size() > maxImportChapters) {
+            throw new IllegalArgumentException("Import contains " + request.chapters.size() + " chapters, the limit is " + maxImportChapters);
+        }
+
+        // Validate the whole manifest before writing anything, against one query for the numbers already taken
+        Set<Integer> taken = new HashSet<>(chapterRepository.findChapterNumbersByStoryId(storyId));
+        Set<Integer> seen = new HashSet<>();
+        List<StoryDtos.CreateChapterRequest> toCreate = new ArrayList<>();
+        int skipped = 0;
+        for (StoryDtos.CreateChapterRequest c : request.chapters) {
+            if (c == null) {
+                throw new IllegalArgumentException("Import contains an empty chapter entry");
+            }
+            if (c.chapterNumber < 0) {
+                throw new IllegalArgumentException("Invalid chapter number " + c.chapterNumber);
+            }
+            if (c.title == null || c.title.isBlank() || c.title.length() > 200) {
+                throw new IllegalArgumentException("Chapter " + c.chapterNumber + " needs a title of 1-200 characters");
+            }
+            if (!seen.add(c.chapterNumber)) {
+                throw new IllegalArgumentException("Chapter number " + c.chapterNumber + " appears more than once in the import");
+            }
+            if (taken.contains(c.chapterNumber)) {
+                if (!request.skipExisting) {
+                    throw new IllegalArgumentException("Chapter number " + c.chapterNumber + " already exists for story id " + storyId);
+                }
+                skipped++;
+                continue;
+            }
+            toCreate.add(c);
+        }
+        toCreate.sort(Comparator.comparingInt(c -> c.chapterNumber));
+
+        // Sequence ids are assigned on save, so chapter and page inserts go out as JDBC batches on flush.
+        // Clearing every importFlushEvery chapters keeps the persistence context small on long series.
+        List<StoryDtos.ChapterSummary> created = new ArrayList<>(toCreate.size());
+        for (int i = 0; i < toCreate.size(); i++) {
+            StoryDtos.CreateChapterRequest c = toCreate.get(i);
+            ChapterEntity chapter = new ChapterEntity();
+            chapter.setStory(story);
+            chapter.setChapterNumber(c.chapterNumber);
+            chapter.setTitle(c.title);
+            chapter = chapterRepository.save(chapter);
+            saveImages(chapter, c.imageIds, 1);
+            created.add(toSummaryDto(chapter));
+            if ((i + 1) % importFlushEvery == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+
+        if (!created.isEmpty()) {
+            readCache.evictChapter(storyId, null);
+        }
+        StoryDtos.ChapterImportResponse response = new StoryDtos.ChapterImportResponse();
+        response.created = created.size();
+        response.skipped = skipped;
+        response.chapters = created;
+        return response;
+    }
+
+    @Override
+    public List<StoryDtos.ChapterResponse> listChapters(Long storyId) {
+        return readCache.getChapterList(storyId, key -> {
+            if (!storyRepository.existsById(key)) throw new IllegalArgumentException("Story not found");
+            return chapterRepository.findTocByStoryId(key)
+                    .stream().map(v -> toDtoListChapter(key, v)).collect(Collectors.toUnmodifiableList());
+        });
+    }
+
+    @Override
+    public StoryDtos.ChapterTocPage getTableOfContents(Long storyId, Integer afterNumber, int size) {
+        if (!storyRepository.existsById(storyId)) throw new IllegalArgumentException("Story not found");
+        int pageSize = Math.min(Math.max(1, size), MAX_TOC_PAGE_SIZE);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<ChapterSummaryView> rows = afterNumber == null
+                ? chapterRepository.findTocFirstPage(storyId, limit)
+                : chapterRepository.findTocPage(storyId, afterNumber, limit);
+
+        StoryDtos.ChapterTocPage page = new StoryDtos.ChapterTocPage();
+        page.hasMore = rows.size() > pageSize;
+        List<ChapterSummaryView> visible = page.hasMore ? rows.subList(0, pageSize) : rows;
+        page.items = visible.stream().map(ChapterService::toSummaryDto).collect(Collectors.toList());
+        if (page.hasMore) {
+            page.nextAfter = visible.get(visible.size() - 1).getChapterNumber();
+        }
+        return page;
     }
 
     @Override
     public StoryDtos.ChapterResponse getChapterForUser(Long chapterId, Long userId) {
-        ChapterEntity chapter = chapterRepository.findById(chapterId)
-                .orElseThrow(() -> new IllegalArgumentException("Chapter not found"));
+        StoryReadCache.ChapterEntry entry = loadChapter(chapterId);
+        StoryDtos.ChapterResponse chapter = entry.getChapter();
 
-        StoryEntity story = chapter.getStory();
+        String access = checkAccess(entry, userId);
+        if (ACCESS_LOGIN_REQUIRED.equals(access)) {
+            throw new IllegalArgumentException("Truyện premium yêu cầu đăng nhập để đọc");
+        }
+        if (ACCESS_PURCHASE_REQUIRED.equals(access)) {
+            throw new IllegalArgumentException("Bạn cần mua truyện premium này để đọc chapter " + chapter.chapterNumber);
+        }
+        return chapter;
+    }
 
-        // Kiểm tra nếu truyện là premium (price > 0)
-        if (story.getPrice() > 0) {
-            // Nếu là chapter 1 thì cho phép đọc miễn phí
-            if (chapter.getChapterNumber() == 1) {
-                return toDto(chapter);
-            }
+    @Override
+    public StoryDtos.ReaderBundleResponse getReaderBundle(Long chapterId, Long userId) {
+        StoryReadCache.ChapterEntry entry = loadChapter(chapterId);
+        StoryDtos.ChapterResponse current = entry.getChapter();
 
-            // Nếu không phải chapter 1, kiểm tra user đã mua chưa
-            if (userId == null) {
-                throw new IllegalArgumentException("Truyện premium yêu cầu đăng nhập để đọc");
-            }
+        StoryDtos.ReaderBundleResponse bundle = new StoryDtos.ReaderBundleResponse();
+        bundle.access = checkAccess(entry, userId);
+        bundle.entitled = isGranted(bundle.access);
+        // Locked chapters still return their header so the reader can render the paywall
+        bundle.chapter = bundle.entitled ? current : withoutImages(current);
 
-            boolean hasPurchased = purchaseRepository.existsByUserIdAndStory(userId, story);
-            if (!hasPurchased) {
-                throw new IllegalArgumentException("Bạn cần mua truyện premium này để đọc chapter " + chapter.getChapterNumber());
+        // Neighbours come from the cached table of contents, so no extra query on the hot path
+        List<StoryDtos.ChapterResponse> toc = listChapters(current.storyId);
+        int index = indexOfChapterNumber(toc, current.chapterNumber);
+        if (index > 0) {
+            bundle.previousChapterId = toc.get(index - 1).id;
+        }
+        if (index >= 0 && index + 1 < toc.size()) {
+            bundle.nextChapterId = toc.get(index + 1).id;
+        }
+
+        // Only hint pages the user can actually open
+        bundle.nextPreload = new ArrayList<>();
+        if (bundle.nextChapterId != null && bundle.entitled) {
+            StoryReadCache.ChapterEntry next = loadChapter(bundle.nextChapterId);
+            if (isGranted(checkAccess(next, userId)) && next.getChapter().images != null) {
+                next.getChapter().images.stream().limit(preloadPages).forEach(bundle.nextPreload::add);
             }
         }
+        return bundle;
+    }
 
-        return toDto(chapter);
+    private StoryReadCache.ChapterEntry loadChapter(Long chapterId) {
+        return readCache.getChapter(chapterId, key -> {
+            ChapterEntity loaded = chapterRepository.findById(key)
+                    .orElseThrow(() -> new IllegalArgumentException("Chapter not found"));
+            return new StoryReadCache.ChapterEntry(toDto(loaded), loaded.getStory().getPrice());
+        });
+    }
+
+    private String checkAccess(StoryReadCache.ChapterEntry entry, Long userId) {
+        // Kiểm tra nếu truyện là premium (price > 0)
+        if (entry.getStoryPrice() <= 0) {
+            return ACCESS_FREE;
+        }
+        // Nếu là chapter 1 thì cho phép đọc miễn phí
+        if (entry.getChapter().chapterNumber == 1) {
+            return ACCESS_FREE_FIRST_CHAPTER;
+        }
+        // Nếu không phải chapter 1, kiểm tra user đã mua chưa
+        if (userId == null) {
+            return ACCESS_LOGIN_REQUIRED;
+        }
+        return entitlementCache.hasAccess(userId, entry.getChapter().storyId) ? ACCESS_PURCHASED : ACCESS_PURCHASE_REQUIRED;
+    }
+
+    private static boolean isGranted(String access) {
+        return !ACCESS_LOGIN_REQUIRED.equals(access) && !ACCESS_PURCHASE_REQUIRED.equals(access);
+    }
+
+    // toc is sorted by chapter number
+    private static int indexOfChapterNumber(List<StoryDtos.ChapterResponse> toc, int chapterNumber) {
+        int low = 0;
+        int high = toc.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int number = toc.get(mid).chapterNumber;
+            if (number < chapterNumber) low = mid + 1;
+            else if (number > chapterNumber) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    // Cached DTOs are shared between requests, so locked views get a copy instead of a mutation
+    private static StoryDtos.ChapterResponse withoutImages(StoryDtos.ChapterResponse c) {
+        StoryDtos.ChapterResponse copy = new StoryDtos.ChapterResponse();
+        copy.id = c.id;
+        copy.storyId = c.storyId;
+        copy.chapterNumber = c.chapterNumber;
+        copy.title = c.title;
+        return copy;
     }
 
     @Override
+    @Transactional
     public StoryDtos.ChapterResponse updateChapter(Long storyId, Long chapterId, StoryDtos.CreateChapterRequest request) {
         StoryEntity story = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
         ChapterEntity chapter = chapterRepository.findById(chapterId).orElseThrow(() -> new IllegalArgumentException("Chapter not found"));
@@ -100,7 +295,7 @@ public class ChapterService implements IChapterService {
             throw new IllegalArgumentException("Chapter does not belong to story");
         }
 
-        // If chapter number is changed, ensure uniqueness and move folder
+        // If chapter number is changed, ensure uniqueness
         int oldNumber = chapter.getChapterNumber();
         int newNumber = request.chapterNumber;
         if (oldNumber != newNumber) {
@@ -108,31 +303,26 @@ public class ChapterService implements IChapterService {
             if (conflict.isPresent()) {
                 throw new IllegalArgumentException("Chapter number " + newNumber + " already exists for story id " + storyId);
             }
-            // perform filesystem move if folder exists
-            String slug = SlugUtil.slugify(story.getTitle());
-            Path storyDir = publicImagesDir.resolve(slug);
-            Path oldDir = storyDir.resolve(String.valueOf(oldNumber));
-            Path newDir = storyDir.resolve(String.valueOf(newNumber));
-            try {
-                if (Files.exists(oldDir)) {
-                    Files.createDirectories(newDir.getParent());
-                    Files.move(oldDir, newDir, StandardCopyOption.REPLACE_EXISTING);
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to rename chapter folder on disk: " + e.getMessage(), e);
-            }
+            // Image URLs do not contain the chapter number, so renumbering moves no files
             chapter.setChapterNumber(newNumber);
         }
 
         // update other fields
         chapter.setTitle(request.title == null ? chapter.getTitle() : request.title);
-        chapter.setImageIds(request.imageIds == null ? chapter.getImageIds() : String.join(",", request.imageIds));
-
         chapter = chapterRepository.save(chapter);
+        if (request.imageIds != null) {
+            List<String> previous = chapterImageRepository.findUrlsByChapterId(chapter.getId());
+            chapterImageRepository.deleteByChapterId(chapter.getId());
+            saveImages(chapter, request.imageIds, 1);
+            imageBlobStore.release(previous);
+        }
+
+        readCache.evictChapter(storyId, chapterId);
         return toDto(chapter);
     }
 
     @Override
+    @Transactional
     public void deleteChapter(Long storyId, Long chapterId) {
         StoryEntity story = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
         ChapterEntity chapter = chapterRepository.findById(chapterId).orElseThrow(() -> new IllegalArgumentException("Chapter not found"));
@@ -140,27 +330,12 @@ public class ChapterService implements IChapterService {
             throw new IllegalArgumentException("Chapter does not belong to story");
         }
 
-        // remove files on disk: /{publicDir}/images/{slug}/{chapterNumber}
-        String slug = SlugUtil.slugify(story.getTitle());
-        Path chapterDir = publicImagesDir.resolve(slug).resolve(String.valueOf(chapter.getChapterNumber()));
-        try {
-            if (Files.exists(chapterDir)) {
-                try (Stream<Path> walk = Files.walk(chapterDir)) {
-                    walk.sorted(Comparator.reverseOrder())
-                            .forEach(path -> {
-                                try {
-                                    Files.deleteIfExists(path);
-                                } catch (IOException ex) {
-                                    throw new RuntimeException("Failed to delete file: " + path + " -> " + ex.getMessage(), ex);
-                                }
-                            });
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to delete chapter folder on disk: " + e.getMessage(), e);
-        }
-
+        List<String> imageUrls = chapterImageRepository.findUrlsByChapterId(chapterId);
+        chapterImageRepository.deleteByChapterId(chapterId);
         chapterRepository.delete(chapter);
+        readCache.evictChapter(storyId, chapterId);
+        // Journalled in this transaction; MediaReaper deletes the files later unless another chapter shares them
+        imageBlobStore.release(imageUrls);
     }
 
     private StoryDtos.ChapterResponse toDto(ChapterEntity c) {
@@ -169,17 +344,68 @@ public class ChapterService implements IChapterService {
         dto.storyId = c.getStory().getId();
         dto.chapterNumber = c.getChapterNumber();
         dto.title = c.getTitle();
-        dto.imageIds = c.getImageIds() == null || c.getImageIds().isEmpty() ? null : Arrays.asList(c.getImageIds().split(","));
+        List<ChapterImageEntity> rows = c.getId() == null ? List.of() : chapterImageRepository.findByChapterIdOrderByPositionAsc(c.getId());
+        dto.imageIds = rows.isEmpty() ? null : rows.stream().map(ChapterImageEntity::getUrl).collect(Collectors.toList());
+        dto.images = rows.isEmpty() ? null : rows.stream().map(this::toImageDto).collect(Collectors.toList());
         return dto;
     }
 
-    private StoryDtos.ChapterResponse toDtoListChapter(ChapterEntity c) {
+    private StoryDtos.ChapterImage toImageDto(ChapterImageEntity row) {
+        StoryDtos.ChapterImage image = new StoryDtos.ChapterImage();
+        image.url = row.getUrl();
+        image.width = row.getWidth();
+        image.height = row.getHeight();
+        image.placeholder = row.getPlaceholder();
+        image.variants = new ArrayList<>();
+        if (row.getVariantWidths() != null) {
+            for (Integer width : row.getVariantWidths()) {
+                StoryDtos.ImageVariant variant = new StoryDtos.ImageVariant();
+                variant.width = width;
+                variant.format = row.getVariantFormat();
+                variant.url = ImageDerivativeGenerator.variantUrl(row.getUrl(), width, row.getVariantFormat());
+                image.variants.add(variant);
+            }
+        }
+        return image;
+    }
+
+    private void saveImages(ChapterEntity chapter, List<String> urls, int firstPosition) {
+        if (urls == null || urls.isEmpty()) return;
+        List<ChapterImageEntity> rows = new ArrayList<>();
+        int position = firstPosition;
+        for (String url : urls) {
+            ChapterImageEntity image = new ChapterImageEntity();
+            image.setChapter(chapter);
+            image.setPosition(position++);
+            image.setUrl(url);
+            rows.add(image);
+        }
+        chapterImageRepository.saveAll(rows);
+    }
+
+    private static StoryDtos.ChapterResponse toDtoListChapter(Long storyId, ChapterSummaryView v) {
         StoryDtos.ChapterResponse dto = new StoryDtos.ChapterResponse();
+        dto.id = v.getId();
+        dto.storyId = storyId;
+        dto.chapterNumber = v.getChapterNumber();
+        dto.title = v.getTitle();
+        dto.imageIds = null;
+        return dto;
+    }
+
+    private static StoryDtos.ChapterSummary toSummaryDto(ChapterEntity c) {
+        StoryDtos.ChapterSummary dto = new StoryDtos.ChapterSummary();
         dto.id = c.getId();
-        dto.storyId = c.getStory().getId();
         dto.chapterNumber = c.getChapterNumber();
         dto.title = c.getTitle();
-        dto.imageIds = null;
+        return dto;
+    }
+
+    private static StoryDtos.ChapterSummary toSummaryDto(ChapterSummaryView v) {
+        StoryDtos.ChapterSummary dto = new StoryDtos.ChapterSummary();
+        dto.id = v.getId();
+        dto.chapterNumber = v.getChapterNumber();
+        dto.title = v.getTitle();
         return dto;
     }
 }
@@ -0,0 +1,57 @@
+package org.example.storyreading.storyservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 of served files, remembered per (path, size, mtime) so each file version is hashed once.
+ * A file overwritten in place gets a new mtime and therefore a new hash.
+ */
+@Component
+public class ContentHashCache {
+
+    private final Cache<String, String> hashes;
+
+    public ContentHashCache(@Value("${story.images.etag-cache-size:200000}") long maxEntries) {
+        this.hashes = Caffeine.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    public String sha256(Path file, BasicFileAttributes attrs) throws IOException {
+        String key = file + "|" + attrs.size() + "|" + attrs.lastModifiedTime().toMillis();
+        String cached = hashes.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        String hash = hash(file);
+        hashes.put(key, hash);
+        return hash;
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
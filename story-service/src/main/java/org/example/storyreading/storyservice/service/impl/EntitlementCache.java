@@ -0,0 +1,82 @@
+package org.example.storyreading.storyservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.storyreading.storyservice.dto.CacheDtos;
+import org.example.storyreading.storyservice.repository.PurchaseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user set of purchased story ids, loaded lazily on the first premium read and kept current by
+ * {@link #recordPurchase} (purchase endpoint, grant listener, and the entitlement fanout that carries grants
+ * committed on other instances). A miss is confirmed against the database at most once per negative-ttl for
+ * each (user, story); the fanout clears that negative entry as soon as the grant commits anywhere.
+ */
+@Component
+public class EntitlementCache {
+
+    private final PurchaseRepository purchaseRepository;
+    private final Cache<Long, Set<Long>> entitlements;
+    // "userId:storyId" pairs confirmed as not purchased; recordPurchase removes the pair
+    private final Cache<String, Boolean> notPurchased;
+
+    public EntitlementCache(PurchaseRepository purchaseRepository,
+                            @Value("${story.entitlement-cache.max-users:100000}") long maxUsers,
+                            @Value("${story.entitlement-cache.ttl-minutes:60}") long ttlMinutes,
+                            @Value("${story.entitlement-cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.purchaseRepository = purchaseRepository;
+        this.entitlements = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        this.notPurchased = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofSeconds(negativeTtlSeconds))
+                .build();
+    }
+
+    public boolean hasAccess(Long userId, Long storyId) {
+        Set<Long> owned = entitlements.get(userId, this::loadPurchasedStoryIds);
+        if (owned.contains(storyId)) {
+            return true;
+        }
+        String key = userId + ":" + storyId;
+        if (notPurchased.getIfPresent(key) != null) {
+            return false;
+        }
+        if (purchaseRepository.existsByUserIdAndStoryId(userId, storyId)) {
+            owned.add(storyId);
+            return true;
+        }
+        notPurchased.put(key, Boolean.TRUE);
+        return false;
+    }
+
+    // Called once a purchase row is committed. compute() waits for an in-flight load of the same user,
+    // so the id is added to the set that load produces; users not yet cached pick it up on first load.
+    public void recordPurchase(Long userId, Long storyId) {
+        notPurchased.invalidate(userId + ":" + storyId);
+        entitlements.asMap().compute(userId, (key, owned) -> {
+            if (owned != null) {
+                owned.add(storyId);
+            }
+            return owned;
+        });
+    }
+
+    public CacheDtos.CacheStatsResponse stats() {
+        return StoryReadCache.toStats("entitlements", entitlements);
+    }
+
+    private Set<Long> loadPurchasedStoryIds(Long userId) {
+        Set<Long> owned = ConcurrentHashMap.newKeySet();
+        owned.addAll(purchaseRepository.findStoryIdsByUserId(userId));
+        return owned;
+    }
+}
@@ -4,10 +4,10 @@ import org.example.storyreading.storyservice.dto.GenreDtos;
 import org.example.storyreading.storyservice.entity.GenreEntity;
 import org.example.storyreading.storyservice.entity.StoryEntity;
 import org.example.storyreading.storyservice.repository.GenreRepository;
+import org.example.storyreading.storyservice.repository.GenreStoryCountView;
 import org.example.storyreading.storyservice.repository.StoryRepository;
 import org.example.storyreading.storyservice.service.IGenreService;
 import org.example.storyreading.storyservice.util.SlugUtil;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -23,15 +23,17 @@ public class GenreService implements IGenreService {
 
     private final GenreRepository genreRepository;
     private final StoryRepository storyRepository;
+    private final StoryReadCache readCache;
 
-    public GenreService(GenreRepository genreRepository, StoryRepository storyRepository) {
+    public GenreService(GenreRepository genreRepository, StoryRepository storyRepository, StoryReadCache readCache) {
         this.genreRepository = genreRepository;
         this.storyRepository = storyRepository;
+        this.readCache = readCache;
     }
 
     @Override
     public List<GenreDtos.GenreResponse> getAll() {
-        return genreRepository.findAll(Sort.by(Sort.Direction.ASC, "name")).stream()
+        return genreRepository.findAllWithStoryCount().stream()
                 .map(this::toDto)
                 .collect(Collectors.toList());
     }
@@ -69,7 +71,7 @@ public class GenreService implements IGenreService {
         if (!oldName.equalsIgnoreCase(newName)) {
             entity.setName(newName);
             entity.setSlug(ensureUniqueSlug(SlugUtil.slugify(newName), entity.getId()));
-            replaceGenreNameInStories(oldName, newName);
+            replaceGenreNameInStories(entity.getId(), oldName, newName);
         }
 
         entity.setDescription(normalizeDescription(request.description));
@@ -83,7 +85,7 @@ public class GenreService implements IGenreService {
         GenreEntity entity = genreRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy thể loại"));
 
-        removeGenreFromStories(entity.getName());
+        removeGenreFromStories(entity);
         genreRepository.delete(entity);
     }
 
@@ -93,7 +95,17 @@ public class GenreService implements IGenreService {
         dto.name = entity.getName();
         dto.slug = entity.getSlug();
         dto.description = entity.getDescription();
-        dto.storyCount = storyRepository.countByGenresContainingIgnoreCase(entity.getName());
+        dto.storyCount = storyRepository.countByGenreId(entity.getId());
+        return dto;
+    }
+
+    private GenreDtos.GenreResponse toDto(GenreStoryCountView view) {
+        GenreDtos.GenreResponse dto = new GenreDtos.GenreResponse();
+        dto.id = view.getId();
+        dto.name = view.getName();
+        dto.slug = view.getSlug();
+        dto.description = view.getDescription();
+        dto.storyCount = view.getStoryCount();
         return dto;
     }
 
@@ -129,8 +141,9 @@ public class GenreService implements IGenreService {
         }
     }
 
-    private void replaceGenreNameInStories(String oldName, String newName) {
-        List<StoryEntity> stories = storyRepository.findByGenresContainingIgnoreCase(oldName);
+    private void replaceGenreNameInStories(Long genreId, String oldName, String newName) {
+        // The join table already points at the renamed genre; only the display copy needs rewriting
+        List<StoryEntity> stories = storyRepository.findByGenreId(genreId);
         for (StoryEntity story : stories) {
             boolean changed = false;
             List<String> parsed = parseGenres(story.getGenres());
@@ -146,21 +159,23 @@ public class GenreService implements IGenreService {
             if (changed) {
                 story.setGenres(joinGenres(updated));
                 storyRepository.save(story);
+                readCache.evictStory(story.getId());
             }
         }
     }
 
-    private void removeGenreFromStories(String name) {
-        List<StoryEntity> stories = storyRepository.findByGenresContainingIgnoreCase(name);
+    private void removeGenreFromStories(GenreEntity genre) {
+        String name = genre.getName();
+        List<StoryEntity> stories = storyRepository.findByGenreId(genre.getId());
         for (StoryEntity story : stories) {
+            story.getGenreEntities().removeIf(g -> g.getId().equals(genre.getId()));
             List<String> parsed = parseGenres(story.getGenres());
             List<String> updated = parsed.stream()
                     .filter(g -> !g.equalsIgnoreCase(name))
                     .collect(Collectors.toList());
-            if (updated.size() != parsed.size()) {
-                story.setGenres(joinGenres(updated));
-                storyRepository.save(story);
-            }
+            story.setGenres(joinGenres(updated));
+            storyRepository.save(story);
+            readCache.evictStory(story.getId());
         }
     }
 
@@ -0,0 +1,227 @@
+package org.example.storyreading.storyservice.service.impl;
+
+import org.example.storyreading.storyservice.entity.MediaDeletionEntity;
+import org.example.storyreading.storyservice.repository.ChapterImageRepository;
+import org.example.storyreading.storyservice.repository.MediaDeletionRepository;
+import org.example.storyreading.storyservice.repository.StoryRepository;
+import org.example.storyreading.storyservice.storage.ObjectStorage;
+import org.example.storyreading.storyservice.util.ImageDerivativeGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed storage for story media. Objects live at key
+ * {@code images/blobs/{h[0:2]}/{h[2:4]}/{sha256}.{ext}} in the configured {@link ObjectStorage}, so the URL
+ * does not depend on the story slug or chapter number, and identical uploads share one object.
+ * <p>
+ * Blobs are not reference counted; {@link #release} journals a deletion and the file is removed only
+ * when no chapter image row or story cover still points at its URL. The reaper's check-and-delete and
+ * {@link #retain} take the same per-URL advisory lock, so a deduplicated upload cannot commit a reference
+ * to a blob that is being deleted.
+ */
+@Component
+public class ImageBlobStore {
+
+    public static final String URL_PREFIX = "/public/images/";
+    private static final String BLOB_URL_PREFIX = URL_PREFIX + "blobs/";
+    private static final Pattern SAFE_EXT = Pattern.compile("^[a-z0-9]{1,5}$");
+
+    private final ChapterImageRepository chapterImageRepository;
+    private final StoryRepository storyRepository;
+    private final MediaDeletionRepository mediaDeletionRepository;
+    private final ObjectStorage storage;
+    private final TransactionTemplate transactionTemplate;
+    private final Path tmpDir;
+    private final Duration deletionGrace;
+
+    public ImageBlobStore(ChapterImageRepository chapterImageRepository,
+                          StoryRepository storyRepository,
+                          MediaDeletionRepository mediaDeletionRepository,
+                          ObjectStorage storage,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${storage.tmp-dir:${java.io.tmpdir}}") String tmpDir,
+                          @Value("${story.media-reaper.grace-seconds:600}") long deletionGraceSeconds) {
+        this.chapterImageRepository = chapterImageRepository;
+        this.storyRepository = storyRepository;
+        this.mediaDeletionRepository = mediaDeletionRepository;
+        this.storage = storage;
+        this.transactionTemplate = transactionTemplate;
+        this.tmpDir = Path.of(tmpDir);
+        this.deletionGrace = Duration.ofSeconds(deletionGraceSeconds);
+    }
+
+    public static class StoredBlob {
+        public String sha256;
+        public long sizeBytes;
+        public String url;
+        public String key;
+        // true when the same content was already stored and the upload was discarded
+        public boolean deduplicated;
+    }
+
+    /**
+     * Stage {@code in} in a temp file while hashing it, then hand it to storage under its content address.
+     * If an object with the same hash already exists the staged copy is dropped.
+     */
+    public StoredBlob store(InputStream in, String originalFilename) throws IOException {
+        Files.createDirectories(tmpDir);
+        Path staged = Files.createTempFile(tmpDir, "blob-", ".part");
+        try {
+            MessageDigest digest = newSha256();
+            long size;
+            try (InputStream hashing = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(staged)) {
+                size = hashing.transferTo(out);
+            }
+
+            StoredBlob blob = new StoredBlob();
+            blob.sha256 = HexFormat.of().formatHex(digest.digest());
+            blob.sizeBytes = size;
+            String ext = extension(originalFilename);
+            String relative = blob.sha256.substring(0, 2) + "/" + blob.sha256.substring(2, 4) + "/"
+                    + blob.sha256 + (ext.isEmpty() ? "" : "." + ext);
+            blob.url = BLOB_URL_PREFIX + relative;
+            blob.key = keyFor(blob.url);
+
+            if (storage.exists(blob.key)) {
+                blob.deduplicated = true;
+            } else {
+                // Two concurrent uploads of the same bytes may both get here; either write leaves identical content
+                String contentType = MediaTypeFactory.getMediaType(originalFilename)
+                        .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+                storage.putFile(blob.key, staged, contentType);
+            }
+            return blob;
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    public static boolean isBlobUrl(String url) {
+        return url != null && url.startsWith(BLOB_URL_PREFIX);
+    }
+
+    /**
+     * Storage key behind a /public/images/ URL (blob or legacy slug layout), or null if the URL
+     * points elsewhere or tries to escape the images prefix.
+     */
+    public static String keyFor(String url) {
+        if (!StringUtils.hasText(url) || !url.startsWith(URL_PREFIX)) return null;
+        String key = url.substring("/public/".length());
+        for (String segment : key.split("/")) {
+            if (segment.equals("..") || segment.equals(".")) return null;
+        }
+        return key;
+    }
+
+    /**
+     * Schedule the objects behind {@code urls} (and their derivatives) for deletion once nothing references them.
+     * Journal rows join the caller's transaction, so they commit or roll back with the metadata delete;
+     * {@link MediaReaper} removes the files later.
+     */
+    public void release(Collection<String> urls) {
+        if (urls == null || urls.isEmpty()) return;
+        // The grace period lets a re-upload of the same content reuse the blob; correctness comes from retain()
+        LocalDateTime notBefore = LocalDateTime.now().plus(deletionGrace);
+        List<MediaDeletionEntity> entries = new ArrayList<>();
+        for (String url : new LinkedHashSet<>(urls)) {
+            if (keyFor(url) == null) continue;
+            MediaDeletionEntity entry = new MediaDeletionEntity();
+            entry.setUrl(url);
+            entry.setNextAttemptAt(notBefore);
+            entries.add(entry);
+        }
+        mediaDeletionRepository.saveAll(entries);
+    }
+
+    /**
+     * Call inside the transaction that commits references to {@code urls}, before writing them.
+     * Locks each URL against the reaper until commit, fails if a blob was already reaped (a deduplicated
+     * upload may have matched a blob whose deletion was due), and drops pending deletions for the URLs.
+     */
+    public void retain(Collection<String> urls) throws IOException {
+        // Sorted, so two transactions retaining overlapping URLs take the locks in the same order
+        List<String> retained = urls.stream().filter(url -> keyFor(url) != null).distinct().sorted().toList();
+        if (retained.isEmpty()) return;
+        for (String url : retained) {
+            mediaDeletionRepository.lockUrl(url);
+        }
+        for (String url : retained) {
+            if (!storage.exists(keyFor(url))) {
+                throw new IOException("Image " + url + " was removed while the upload was in progress; upload it again");
+            }
+        }
+        mediaDeletionRepository.deleteByUrlIn(retained);
+    }
+
+    // Same as release() for every image of a story, as one INSERT ... SELECT; call before the rows are deleted
+    public void releaseStoryImages(Long storyId) {
+        mediaDeletionRepository.journalStoryImages(storyId, LocalDateTime.now().plus(deletionGrace));
+    }
+
+    /**
+     * Delete the object behind {@code url} and its derivatives unless a chapter image or cover still uses it.
+     * Runs under the URL's advisory lock (see {@link #retain}). Missing objects count as deleted, so retries are safe.
+     */
+    public void deleteIfUnreferenced(String url) throws IOException {
+        String key = keyFor(url);
+        if (key == null) return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                mediaDeletionRepository.lockUrl(url);
+                if (isReferenced(url)) return;
+                try {
+                    storage.delete(key);
+                    for (String variant : storage.list(ImageDerivativeGenerator.variantKeyPrefix(key))) {
+                        storage.delete(variant);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private boolean isReferenced(String url) {
+        return chapterImageRepository.existsByUrl(url) || storyRepository.existsByCoverImageId(url);
+    }
+
+    private static String extension(String original) {
+        if (!StringUtils.hasText(original) || !original.contains(".")) return "";
+        String ext = original.substring(original.lastIndexOf('.') + 1).toLowerCase();
+        if ("jpeg".equals(ext)) ext = "jpg";
+        return SAFE_EXT.matcher(ext).matches() ? ext : "";
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.storyreading.storyservice.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.example.storyreading.storyservice.repository.ChapterImageRepository;
+import org.example.storyreading.storyservice.storage.ObjectStorage;
+import org.example.storyreading.storyservice.util.ImageDerivativeGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Background transcoding of uploaded chapter pages and covers into responsive WebP derivatives.
+ * Runs after the upload has committed; the chapter cache entry is evicted once variants exist
+ * so the next read advertises them.
+ */
+@Component
+public class ImageDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    private final ChapterImageRepository chapterImageRepository;
+    private final StoryReadCache readCache;
+    private final ObjectStorage storage;
+    private final ImageDerivativeGenerator generator;
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public ImageDerivativeService(ChapterImageRepository chapterImageRepository,
+                                  StoryReadCache readCache,
+                                  ObjectStorage storage,
+                                  @Value("${story.derivatives.widths:320,640,1080}") int[] widths,
+                                  @Value("${story.derivatives.quality:0.8}") float quality,
+                                  @Value("${story.derivatives.webp-method:2}") int webpMethod,
+                                  @Value("${story.derivatives.parallelism:2}") int parallelism,
+                                  @Value("${story.derivatives.queue-capacity:10000}") int queueCapacity) {
+        this.chapterImageRepository = chapterImageRepository;
+        this.readCache = readCache;
+        this.storage = storage;
+        this.generator = new ImageDerivativeGenerator(widths, quality, webpMethod);
+        AtomicInteger threadIndex = new AtomicInteger();
+        int threads = Math.max(1, parallelism);
+        // A full queue drops the task rather than transcoding on the upload thread: derivatives are optional and
+        // the original is served until a later upload or replace regenerates them
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "image-derivatives-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (task, executor) -> log.warn("Derivative queue full ({} pending), dropped a task; {} dropped since start",
+                        executor.getQueue().size(), dropped.incrementAndGet()));
+        if (!ImageDerivativeGenerator.webpSupported()) {
+            log.warn("No WebP ImageIO writer on this platform; derivatives will be written as JPEG");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public void enqueueChapterImage(Long storyId, Long chapterId, Long imageId, String key) {
+        pool.execute(() -> {
+            try {
+                ImageDerivativeGenerator.Result result = generate(key);
+                if (result == null) {
+                    log.warn("Skipping derivatives for {}: not a decodable image", key);
+                    return;
+                }
+                chapterImageRepository.updateDerivatives(imageId, result.width, result.height, result.format,
+                        result.variantWidths.toArray(new Integer[0]), result.placeholder);
+                readCache.evictChapter(storyId, chapterId);
+            } catch (Exception e) {
+                // Originals are still served; a failed derivative only costs bandwidth
+                log.error("Failed to generate derivatives for {}: {}", key, e.getMessage(), e);
+            }
+        });
+    }
+
+    public void enqueueCover(String key) {
+        pool.execute(() -> {
+            try {
+                generate(key);
+            } catch (Exception e) {
+                log.error("Failed to generate cover derivatives for {}: {}", key, e.getMessage(), e);
+            }
+        });
+    }
+
+    // Disk-backed storage is transcoded in place; remote objects go through a scratch directory
+    private ImageDerivativeGenerator.Result generate(String key) throws IOException {
+        Optional<Path> local = storage.localPath(key);
+        if (local.isPresent()) {
+            return generator.generate(local.get());
+        }
+        Path scratch = Files.createTempDirectory("derivatives-");
+        try {
+            Path source = scratch.resolve(key.substring(key.lastIndexOf('/') + 1));
+            try (InputStream in = storage.get(key)) {
+                Files.copy(in, source);
+            }
+            ImageDerivativeGenerator.Result result = generator.generate(source);
+            if (result == null) return null;
+            String contentType = "image/" + ("jpg".equals(result.format) ? "jpeg" : result.format);
+            String prefix = ImageDerivativeGenerator.variantKeyPrefix(key);
+            for (Integer width : result.variantWidths) {
+                Path variant = ImageDerivativeGenerator.variantPath(source, width, result.format);
+                storage.putFile(prefix + width + "." + result.format, variant, contentType);
+            }
+            return result;
+        } finally {
+            try (Stream<Path> walk = Files.walk(scratch)) {
+                walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.storyreading.storyservice.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.example.storyreading.storyservice.entity.MediaDeletionEntity;
+import org.example.storyreading.storyservice.repository.MediaDeletionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the media_deletions journal written by {@link ImageBlobStore#release}.
+ * Entries are claimed with FOR UPDATE SKIP LOCKED and leased, so several instances can reap concurrently
+ * and an instance that dies mid-batch only delays its entries until the lease runs out.
+ * Failures are retried with exponential backoff up to {@code max-attempts}.
+ */
+@Component
+public class MediaReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(MediaReaper.class);
+
+    private final MediaDeletionRepository mediaDeletionRepository;
+    private final ImageBlobStore imageBlobStore;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService ioPool;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryBase;
+    private final Duration retryMax;
+
+    public MediaReaper(MediaDeletionRepository mediaDeletionRepository,
+                       ImageBlobStore imageBlobStore,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${story.media-reaper.parallelism:4}") int parallelism,
+                       @Value("${story.media-reaper.batch-size:200}") int batchSize,
+                       @Value("${story.media-reaper.max-attempts:10}") int maxAttempts,
+                       @Value("${story.media-reaper.lease-seconds:300}") long leaseSeconds,
+                       @Value("${story.media-reaper.retry-base-seconds:30}") long retryBaseSeconds,
+                       @Value("${story.media-reaper.retry-max-seconds:3600}") long retryMaxSeconds) {
+        this.mediaDeletionRepository = mediaDeletionRepository;
+        this.imageBlobStore = imageBlobStore;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.retryBase = Duration.ofSeconds(retryBaseSeconds);
+        this.retryMax = Duration.ofSeconds(retryMaxSeconds);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.ioPool = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "media-reaper-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioPool.shutdown();
+    }
+
+    @Scheduled(initialDelayString = "${story.media-reaper.initial-delay-ms:30000}",
+            fixedDelayString = "${story.media-reaper.interval-ms:10000}")
+    public void reap() {
+        while (true) {
+            List<MediaDeletionEntity> batch = claim();
+            if (batch.isEmpty()) return;
+            process(batch);
+            if (batch.size() < batchSize) return;
+        }
+    }
+
+    private List<MediaDeletionEntity> claim() {
+        List<MediaDeletionEntity> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<MediaDeletionEntity> due = mediaDeletionRepository.lockDue(now, maxAttempts, batchSize);
+            if (!due.isEmpty()) {
+                mediaDeletionRepository.lease(due.stream().map(MediaDeletionEntity::getId).toList(), now.plus(lease));
+            }
+            return due;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    private void process(List<MediaDeletionEntity> batch) {
+        ConcurrentLinkedQueue<Long> done = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(batch.size());
+        for (MediaDeletionEntity entry : batch) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                try {
+                    imageBlobStore.deleteIfUnreferenced(entry.getUrl());
+                    done.add(entry.getId());
+                } catch (Exception e) {
+                    int attempt = entry.getAttempts() + 1;
+                    String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+                    mediaDeletionRepository.recordFailure(entry.getId(), LocalDateTime.now().plus(backoff(attempt)),
+                            error.length() > 1000 ? error.substring(0, 1000) : error);
+                    if (attempt >= maxAttempts) {
+                        log.error("Giving up deleting {} after {} attempts: {}", entry.getUrl(), attempt, error);
+                    } else {
+                        log.warn("Failed to delete {} (attempt {}), will retry: {}", entry.getUrl(), attempt, error);
+                    }
+                }
+            }, ioPool));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        if (!done.isEmpty()) {
+            mediaDeletionRepository.deleteByIdIn(new ArrayList<>(done));
+            log.debug("Reaped {} media objects", done.size());
+        }
+    }
+
+    private Duration backoff(int attempt) {
+        Duration delay = retryBase.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(retryMax) > 0 ? retryMax : delay;
+    }
+}
@@ -1,22 +1,37 @@
 package org.example.storyreading.storyservice.service.impl;
 
+import org.example.storyreading.storyservice.config.RabbitMQConfig;
 import org.example.storyreading.storyservice.dto.StoryDtos;
+import org.example.storyreading.storyservice.dto.StoryPurchaseEvent;
 import org.example.storyreading.storyservice.entity.PurchaseEntity;
 import org.example.storyreading.storyservice.entity.StoryEntity;
 import org.example.storyreading.storyservice.repository.PurchaseRepository;
 import org.example.storyreading.storyservice.repository.StoryRepository;
 import org.example.storyreading.storyservice.service.IPurchaseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 public class PurchaseService implements IPurchaseService {
 
+    private static final Logger log = LoggerFactory.getLogger(PurchaseService.class);
+
     private final PurchaseRepository purchaseRepository;
     private final StoryRepository storyRepository;
+    private final EntitlementCache entitlementCache;
+    private final RabbitTemplate rabbitTemplate;
 
-    public PurchaseService(PurchaseRepository purchaseRepository, StoryRepository storyRepository) {
+    public PurchaseService(PurchaseRepository purchaseRepository, StoryRepository storyRepository,
+                           EntitlementCache entitlementCache, RabbitTemplate rabbitTemplate) {
         this.purchaseRepository = purchaseRepository;
         this.storyRepository = storyRepository;
+        this.entitlementCache = entitlementCache;
+        this.rabbitTemplate = rabbitTemplate;
     }
 
     @Override
@@ -36,6 +51,8 @@ public class PurchaseService implements IPurchaseService {
         p.setUserId(userId);
         p.setStory(story);
         purchaseRepository.save(p);
+        entitlementCache.recordPurchase(userId, storyId);
+        broadcastGrant(userId, storyId);
 
         StoryDtos.PurchaseResponse resp = new StoryDtos.PurchaseResponse();
         resp.storyId = storyId;
@@ -46,24 +63,46 @@ public class PurchaseService implements IPurchaseService {
 
     @Override
     public boolean hasPurchased(Long userId, Long storyId) {
-        StoryEntity story = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
-        return purchaseRepository.existsByUserIdAndStory(userId, story);
+        return entitlementCache.hasAccess(userId, storyId);
     }
 
     @Override
     public void grantAccess(Long userId, Long storyId) {
-        StoryEntity story = storyRepository.findById(storyId)
-                .orElseThrow(() -> new IllegalArgumentException("Story not found with id: " + storyId));
+        if (!storyRepository.existsById(storyId)) {
+            throw new IllegalArgumentException("Story not found with id: " + storyId);
+        }
+        grantAccess(List.of(new StoryPurchaseEvent(userId, storyId, null, null)));
+    }
 
-        // Check if already purchased to avoid duplicates
-        if (purchaseRepository.existsByUserIdAndStory(userId, story)) {
-            return; // Already has access
+    // One multi-row insert for the whole batch; already granted purchases and repeated transaction ids are no-ops
+    @Override
+    public int grantAccess(List<StoryPurchaseEvent> events) {
+        if (events.isEmpty()) return 0;
+        Long[] userIds = new Long[events.size()];
+        Long[] storyIds = new Long[events.size()];
+        String[] transactionIds = new String[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            StoryPurchaseEvent event = events.get(i);
+            userIds[i] = event.getUserId();
+            storyIds[i] = event.getStoryId();
+            transactionIds[i] = event.getTransactionId();
+        }
+        int inserted = purchaseRepository.insertGrants(userIds, storyIds, transactionIds);
+        for (StoryPurchaseEvent event : events) {
+            entitlementCache.recordPurchase(event.getUserId(), event.getStoryId());
+            broadcastGrant(event.getUserId(), event.getStoryId());
         }
+        return inserted;
+    }
 
-        // Create purchase record to grant access
-        PurchaseEntity purchase = new PurchaseEntity();
-        purchase.setUserId(userId);
-        purchase.setStory(story);
-        purchaseRepository.save(purchase);
+    // Other instances may hold a cached "not purchased" for this pair; the grant is committed by now, so tell
+    // them. Best effort: if the broker is down the entry still expires after negative-ttl-seconds.
+    private void broadcastGrant(Long userId, Long storyId) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.ENTITLEMENT_FANOUT_EXCHANGE, "",
+                    new StoryPurchaseEvent(userId, storyId, null, null));
+        } catch (AmqpException e) {
+            log.warn("Could not broadcast entitlement for user {} story {}: {}", userId, storyId, e.getMessage());
+        }
     }
 }
@@ -0,0 +1,163 @@
+package org.example.storyreading.storyservice.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.example.storyreading.storyservice.dto.CacheDtos;
+import org.example.storyreading.storyservice.dto.StoryDtos;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process read-through cache for story and chapter metadata.
+ * Entries are weighed by an estimate of their size in bytes and expire after a fixed TTL;
+ * writers must call the evict methods explicitly.
+ */
+@Component
+public class StoryReadCache {
+
+    private final Cache<Long, StoryDtos.StoryResponse> stories;
+    private final Cache<Long, List<StoryDtos.ChapterResponse>> chapterLists;
+    private final Cache<Long, ChapterEntry> chapters;
+
+    public StoryReadCache(@Value("${story.cache.ttl-minutes:10}") long ttlMinutes,
+                          @Value("${story.cache.stories-max-bytes:8388608}") long storiesMaxBytes,
+                          @Value("${story.cache.chapter-lists-max-bytes:8388608}") long chapterListsMaxBytes,
+                          @Value("${story.cache.chapters-max-bytes:33554432}") long chaptersMaxBytes) {
+        Duration ttl = Duration.ofMinutes(ttlMinutes);
+        this.stories = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(storiesMaxBytes)
+                .<Long, StoryDtos.StoryResponse>weigher((id, story) -> weigh(story))
+                .recordStats()
+                .build();
+        this.chapterLists = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(chapterListsMaxBytes)
+                .<Long, List<StoryDtos.ChapterResponse>>weigher((storyId, list) -> {
+                    long total = 16;
+                    for (StoryDtos.ChapterResponse c : list) total += weigh(c);
+                    return (int) Math.min(Integer.MAX_VALUE, total);
+                })
+                .recordStats()
+                .build();
+        this.chapters = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(chaptersMaxBytes)
+                .<Long, ChapterEntry>weigher((id, entry) -> weigh(entry.getChapter()) + 16)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Chapter plus the story price it was loaded with, so premium checks need no story lookup.
+     */
+    public static class ChapterEntry {
+        private final StoryDtos.ChapterResponse chapter;
+        private final long storyPrice;
+
+        public ChapterEntry(StoryDtos.ChapterResponse chapter, long storyPrice) {
+            this.chapter = chapter;
+            this.storyPrice = storyPrice;
+        }
+
+        public StoryDtos.ChapterResponse getChapter() { return chapter; }
+        public long getStoryPrice() { return storyPrice; }
+    }
+
+    public StoryDtos.StoryResponse getStory(Long storyId, Function<Long, StoryDtos.StoryResponse> loader) {
+        return stories.get(storyId, loader);
+    }
+
+    public List<StoryDtos.ChapterResponse> getChapterList(Long storyId, Function<Long, List<StoryDtos.ChapterResponse>> loader) {
+        return chapterLists.get(storyId, loader);
+    }
+
+    public ChapterEntry getChapter(Long chapterId, Function<Long, ChapterEntry> loader) {
+        return chapters.get(chapterId, loader);
+    }
+
+    // Story row changed: drop the story, its chapter list and every cached chapter (URLs/price may have changed)
+    public void evictStory(Long storyId) {
+        afterCommit(() -> {
+            stories.invalidate(storyId);
+            chapterLists.invalidate(storyId);
+            chapters.asMap().values().removeIf(entry -> storyId.equals(entry.getChapter().storyId));
+        });
+    }
+
+    // A chapter changed (or was added/removed): drop it and the story's table of contents
+    public void evictChapter(Long storyId, Long chapterId) {
+        afterCommit(() -> {
+            if (chapterId != null) chapters.invalidate(chapterId);
+            chapterLists.invalidate(storyId);
+        });
+    }
+
+    public List<CacheDtos.CacheStatsResponse> stats() {
+        List<CacheDtos.CacheStatsResponse> result = new ArrayList<>();
+        result.add(toStats("stories", stories));
+        result.add(toStats("chapterLists", chapterLists));
+        result.add(toStats("chapters", chapters));
+        return result;
+    }
+
+    // Evicting before commit would let a concurrent reader repopulate the cache with the old row
+    private void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    static CacheDtos.CacheStatsResponse toStats(String name, Cache<?, ?> cache) {
+        CacheStats s = cache.stats();
+        CacheDtos.CacheStatsResponse dto = new CacheDtos.CacheStatsResponse();
+        dto.name = name;
+        dto.hitCount = s.hitCount();
+        dto.missCount = s.missCount();
+        dto.hitRate = s.hitRate();
+        dto.evictionCount = s.evictionCount();
+        dto.estimatedSize = cache.estimatedSize();
+        dto.weightedSizeBytes = cache.policy().eviction()
+                .map(e -> e.weightedSize().orElse(0L))
+                .orElse(0L);
+        return dto;
+    }
+
+    // Rough byte estimates: 2 bytes per char plus a fixed per-object overhead
+    private static int weigh(StoryDtos.StoryResponse s) {
+        long size = 64 + chars(s.title) + chars(s.description) + chars(s.coverImageId) + chars(s.author);
+        if (s.genres != null) for (String g : s.genres) size += 16 + chars(g);
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    private static int weigh(StoryDtos.ChapterResponse c) {
+        long size = 48 + chars(c.title);
+        if (c.imageIds != null) for (String url : c.imageIds) size += 16 + chars(url);
+        if (c.images != null) {
+            for (StoryDtos.ChapterImage image : c.images) {
+                size += 48 + chars(image.url) + chars(image.placeholder);
+                if (image.variants != null) for (StoryDtos.ImageVariant v : image.variants) size += 32 + chars(v.url);
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    private static long chars(String s) {
+        return s == null ? 0 : 2L * s.length();
+    }
+}
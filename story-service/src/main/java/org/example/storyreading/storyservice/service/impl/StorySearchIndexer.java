@@ -0,0 +1,54 @@
+package org.example.storyreading.storyservice.service.impl;
+
+import org.example.storyreading.storyservice.entity.StoryEntity;
+import org.example.storyreading.storyservice.repository.StoryRepository;
+import org.example.storyreading.storyservice.util.SearchTextUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills search_title/search_body for stories written before the search columns existed.
+ * New and updated stories are kept in sync by StoryEntity's lifecycle callbacks.
+ */
+@Component
+public class StorySearchIndexer {
+
+    private static final Logger log = LoggerFactory.getLogger(StorySearchIndexer.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final StoryRepository storyRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public StorySearchIndexer(StoryRepository storyRepository, TransactionTemplate transactionTemplate) {
+        this.storyRepository = storyRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissingSearchText() {
+        int total = 0;
+        while (true) {
+            Integer updated = transactionTemplate.execute(status -> {
+                List<StoryEntity> batch = storyRepository.findMissingSearchText(PageRequest.of(0, BATCH_SIZE));
+                for (StoryEntity s : batch) {
+                    storyRepository.updateSearchText(s.getId(),
+                            SearchTextUtil.normalize(s.getTitle()),
+                            SearchTextUtil.normalize(s.getDescription()));
+                }
+                return batch.size();
+            });
+            if (updated == null || updated == 0) break;
+            total += updated;
+        }
+        if (total > 0) {
+            log.info("Backfilled search text for {} stories", total);
+        }
+    }
+}
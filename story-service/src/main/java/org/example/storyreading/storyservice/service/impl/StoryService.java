@@ -1,42 +1,52 @@
 package org.example.storyreading.storyservice.service.impl;
 
 import org.example.storyreading.storyservice.dto.StoryDtos;
-import org.example.storyreading.storyservice.entity.ChapterEntity;
 import org.example.storyreading.storyservice.entity.GenreEntity;
 import org.example.storyreading.storyservice.entity.StoryEntity;
+import org.example.storyreading.storyservice.repository.ChapterImageRepository;
 import org.example.storyreading.storyservice.repository.ChapterRepository;
 import org.example.storyreading.storyservice.repository.GenreRepository;
 import org.example.storyreading.storyservice.repository.StoryRepository;
+import org.example.storyreading.storyservice.repository.StorySummaryView;
 import org.example.storyreading.storyservice.service.IStoryService;
+import org.example.storyreading.storyservice.util.CatalogCursor;
+import org.example.storyreading.storyservice.util.SearchTextUtil;
 import org.example.storyreading.storyservice.util.SlugUtil;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.io.IOException;
-import java.nio.file.*;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class StoryService implements IStoryService {
 
+    private static final int MAX_CATALOG_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_PAGE_SIZE = 50;
+    private static final int MAX_TITLE_SEARCH_RESULTS = 100;
+
     private final StoryRepository storyRepository;
     private final ChapterRepository chapterRepository;
-    private final Path imagesDir;
+    private final ChapterImageRepository chapterImageRepository;
     private final GenreRepository genreRepository;
+    private final StoryReadCache readCache;
+    private final ImageBlobStore imageBlobStore;
 
     public StoryService(StoryRepository storyRepository,
                         ChapterRepository chapterRepository,
+                        ChapterImageRepository chapterImageRepository,
                         GenreRepository genreRepository,
-                        @Value("${storage.public-dir:public}") String publicDir) {
+                        StoryReadCache readCache,
+                        ImageBlobStore imageBlobStore) {
         this.storyRepository = storyRepository;
         this.chapterRepository = chapterRepository;
+        this.chapterImageRepository = chapterImageRepository;
         this.genreRepository = genreRepository;
-        this.imagesDir = Path.of(publicDir).resolve("images");
+        this.readCache = readCache;
+        this.imageBlobStore = imageBlobStore;
     }
 
     @Override
@@ -50,6 +60,7 @@ public class StoryService implements IStoryService {
         s.setTitle(request.title);
         s.setDescription(request.description);
         s.setGenres(request.genres == null ? null : String.join(",", request.genres));
+        s.setGenreEntities(resolveGenres(request.genres));
         s.setCoverImageId(request.coverImageId);
         s.setPaid(request.paid);
         s.setPrice(request.price);
@@ -59,8 +70,8 @@ public class StoryService implements IStoryService {
 
     @Override
     public StoryDtos.StoryResponse getStory(Long id) {
-        StoryEntity s = storyRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("Story not found"));
-        return toDto(s);
+        return readCache.getStory(id, key -> toDto(storyRepository.findById(key)
+                .orElseThrow(() -> new IllegalArgumentException("Story not found"))));
     }
 
     @Override
@@ -68,67 +79,52 @@ public class StoryService implements IStoryService {
         return storyRepository.findAll().stream().map(this::toDto).collect(Collectors.toList());
     }
 
+    @Override
+    public StoryDtos.StoryCatalogPage listCatalog(String cursor, int size) {
+        int pageSize = Math.min(Math.max(1, size), MAX_CATALOG_PAGE_SIZE);
+        // Fetch one extra row to know whether another page exists
+        var limit = PageRequest.of(0, pageSize + 1);
+        List<StorySummaryView> rows;
+        if (StringUtils.hasText(cursor)) {
+            CatalogCursor after = CatalogCursor.decode(cursor);
+            rows = storyRepository.findCatalogPageAfter(after.getUpdatedAt(), after.getId(), limit);
+        } else {
+            rows = storyRepository.findCatalogPage(limit);
+        }
+
+        StoryDtos.StoryCatalogPage page = new StoryDtos.StoryCatalogPage();
+        page.hasMore = rows.size() > pageSize;
+        List<StorySummaryView> visible = page.hasMore ? rows.subList(0, pageSize) : rows;
+        page.items = visible.stream().map(this::toSummaryDto).collect(Collectors.toList());
+        if (page.hasMore) {
+            StorySummaryView last = visible.get(visible.size() - 1);
+            page.nextCursor = new CatalogCursor(last.getUpdatedAt(), last.getId()).encode();
+        }
+        return page;
+    }
+
     @Override
     @Transactional
     public StoryDtos.StoryResponse updateStory(Long authorId, Long storyId, StoryDtos.UpdateStoryRequest request) {
         if (authorId == null) throw new IllegalArgumentException("User ID is required");
         StoryEntity s = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
 
-        String oldTitle = s.getTitle();
-        String oldSlug = SlugUtil.slugify(oldTitle);
-        boolean titleChanged = false;
-        String newSlug = oldSlug;
-
-        if (request.title != null && !request.title.equals(oldTitle)) {
-            titleChanged = true;
+        if (request.title != null && !request.title.equals(s.getTitle())) {
             s.setTitle(request.title);
-            newSlug = SlugUtil.slugify(request.title);
         }
         if (request.description != null) s.setDescription(request.description);
-        if (request.genres != null) s.setGenres(String.join(",", request.genres));
+        if (request.genres != null) {
+            s.setGenres(String.join(",", request.genres));
+            s.setGenreEntities(resolveGenres(request.genres));
+        }
         if (request.coverImageId != null) s.setCoverImageId(request.coverImageId);
         if (request.paid != null) s.setPaid(request.paid);
         if (request.price != null) s.setPrice(request.price);
 
-        // If title changed, move folder and update image URLs stored in chapters and cover
-        if (titleChanged) {
-            Path oldDir = imagesDir.resolve(oldSlug);
-            Path newDir = imagesDir.resolve(newSlug);
-            try {
-                if (Files.exists(oldDir)) {
-                    // Ensure parent exists
-                    Files.createDirectories(newDir.getParent());
-                    // Move directory - if newDir exists, move contents
-                    if (Files.exists(newDir)) {
-                        // copy contents of oldDir into newDir and delete old
-                        copyDirectoryContents(oldDir, newDir);
-                        deleteDirectoryRecursively(oldDir);
-                    } else {
-                        Files.move(oldDir, newDir, StandardCopyOption.REPLACE_EXISTING);
-                    }
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to move story image folder: " + e.getMessage(), e);
-            }
-
-            // Update coverImageId if it used old slug
-            String cover = s.getCoverImageId();
-            if (StringUtils.hasText(cover) && cover.contains("/public/images/" + oldSlug)) {
-                s.setCoverImageId(cover.replace("/public/images/" + oldSlug, "/public/images/" + newSlug));
-            }
-
-            // Update chapters image URLs
-            List<ChapterEntity> chapters = chapterRepository.findByStoryOrderByChapterNumberAsc(s);
-            for (ChapterEntity ch : chapters) {
-                String imgs = ch.getImageIds();
-                if (imgs != null && imgs.contains("/public/images/" + oldSlug)) {
-                    ch.setImageIds(imgs.replaceAll("/public/images/" + oldSlug, "/public/images/" + newSlug));
-                    chapterRepository.save(ch);
-                }
-            }
-        }
-
+        // Image URLs point into the content-addressed blob store, so a rename touches no files or image rows.
+        // Images uploaded before the blob store keep their old slug-based URLs, which remain valid.
         s = storyRepository.save(s);
+        readCache.evictStory(storyId);
         return toDto(s);
     }
 
@@ -138,39 +134,62 @@ public class StoryService implements IStoryService {
         if (authorId == null) throw new IllegalArgumentException("User ID is required");
         StoryEntity s = storyRepository.findById(storyId).orElseThrow(() -> new IllegalArgumentException("Story not found"));
 
-        // Delete chapters first to satisfy FK constraints
-        List<ChapterEntity> chapters = chapterRepository.findByStoryOrderByChapterNumberAsc(s);
-        if (!chapters.isEmpty()) {
-            chapterRepository.deleteAll(chapters);
+        // Journal the media first: the journal rows commit together with the metadata delete,
+        // and MediaReaper reclaims the files afterwards, so the request does no file I/O
+        imageBlobStore.releaseStoryImages(storyId);
+        if (StringUtils.hasText(s.getCoverImageId())) {
+            imageBlobStore.release(List.of(s.getCoverImageId()));
         }
 
+        // Delete chapter images and chapters first to satisfy FK constraints (set-based, no per-row loads)
+        chapterImageRepository.deleteByStoryId(storyId);
+        chapterRepository.deleteByStoryId(storyId);
+
         // Delete story row
         storyRepository.delete(s);
-
-        // Delete filesystem folder if exists
-        String slug = SlugUtil.slugify(s.getTitle());
-        Path storyDir = imagesDir.resolve(slug);
-        try {
-            if (Files.exists(storyDir)) {
-                deleteDirectoryRecursively(storyDir);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to delete story image folder: " + e.getMessage(), e);
-        }
+        readCache.evictStory(storyId);
     }
 
     @Override
     public List<StoryDtos.StoryResponse> searchByTitle(String title) {
         if (title == null || title.isBlank()) return Collections.emptyList();
-        List<StoryEntity> list = storyRepository.findByTitleContainingIgnoreCase(title);
+        String normalized = SearchTextUtil.normalize(title);
+        if (normalized.isEmpty()) return Collections.emptyList();
+        List<StoryEntity> list = storyRepository.findBySearchTitleContaining(normalized,
+                PageRequest.of(0, MAX_TITLE_SEARCH_RESULTS, Sort.by(Sort.Direction.DESC, "id")));
         return list.stream().map(this::toDto).collect(Collectors.toList());
     }
 
+    @Override
+    public StoryDtos.StorySearchPage search(String query, int page, int size) {
+        int pageIndex = Math.max(0, page);
+        int pageSize = Math.min(Math.max(1, size), MAX_SEARCH_PAGE_SIZE);
+        StoryDtos.StorySearchPage result = new StoryDtos.StorySearchPage();
+        result.page = pageIndex;
+        result.size = pageSize;
+        result.items = new ArrayList<>();
+
+        String term = SearchTextUtil.normalize(query);
+        if (term.isEmpty()) return result;
+
+        // Fetch one extra row to know whether another page exists
+        List<StorySummaryView> rows = storyRepository.searchRanked(term, SearchTextUtil.escapeLike(term),
+                SearchTextUtil.toPrefixTsQuery(term), pageSize + 1, pageIndex * pageSize);
+        result.hasMore = rows.size() > pageSize;
+        List<StorySummaryView> visible = result.hasMore ? rows.subList(0, pageSize) : rows;
+        result.items = visible.stream().map(this::toSummaryDto).collect(Collectors.toList());
+        return result;
+    }
+
     @Override
     public List<StoryDtos.StoryResponse> getStoriesByGenre(String genre, int page, int size) {
         if (genre == null || genre.isBlank()) return Collections.emptyList();
+        String key = genre.trim();
+        Optional<GenreEntity> match = genreRepository.findByNameIgnoreCase(key)
+                .or(() -> genreRepository.findBySlug(SlugUtil.slugify(key)));
+        if (match.isEmpty()) return Collections.emptyList();
         var pageable = PageRequest.of(Math.max(0, page), Math.max(1, size));
-        return storyRepository.findByGenresContainingIgnoreCase(genre, pageable)
+        return storyRepository.findByGenreId(match.get().getId(), pageable)
                 .stream().map(this::toDto).collect(Collectors.toList());
     }
 
@@ -204,6 +223,26 @@ public class StoryService implements IStoryService {
         return computed;
     }
 
+    // Map genre names from a request onto genre rows, creating any that do not exist yet
+    private Set<GenreEntity> resolveGenres(List<String> names) {
+        Set<GenreEntity> resolved = new LinkedHashSet<>();
+        if (names == null) return resolved;
+        Set<String> seen = new HashSet<>();
+        for (String raw : names) {
+            if (!StringUtils.hasText(raw)) continue;
+            String name = raw.trim();
+            if (!seen.add(name.toLowerCase())) continue;
+            GenreEntity genre = genreRepository.findByNameIgnoreCase(name).orElseGet(() -> {
+                GenreEntity created = new GenreEntity();
+                created.setName(name);
+                created.setSlug(generateUniqueSlug(name));
+                return genreRepository.save(created);
+            });
+            resolved.add(genre);
+        }
+        return resolved;
+    }
+
     private String generateUniqueSlug(String name) {
         String base = SlugUtil.slugify(name);
         if (!StringUtils.hasText(base)) {
@@ -231,26 +270,14 @@ public class StoryService implements IStoryService {
         return dto;
     }
 
-    private void deleteDirectoryRecursively(Path dir) throws IOException {
-        if (!Files.exists(dir)) return;
-        try (var stream = Files.walk(dir)) {
-            stream.sorted(Comparator.reverseOrder()).forEach(p -> {
-                try { Files.deleteIfExists(p); } catch (IOException e) { /* ignore */ }
-            });
-        }
-    }
-
-    private void copyDirectoryContents(Path source, Path target) throws IOException {
-        if (!Files.exists(source)) return;
-        Files.createDirectories(target);
-        try (var stream = Files.walk(source)) {
-            for (Path p : (Iterable<Path>) stream::iterator) {
-                if (Files.isDirectory(p)) continue;
-                Path relative = source.relativize(p);
-                Path dest = target.resolve(relative);
-                Files.createDirectories(dest.getParent());
-                Files.copy(p, dest, StandardCopyOption.REPLACE_EXISTING);
-            }
-        }
+    private StoryDtos.StorySummaryResponse toSummaryDto(StorySummaryView v) {
+        StoryDtos.StorySummaryResponse dto = new StoryDtos.StorySummaryResponse();
+        dto.id = v.getId();
+        dto.title = v.getTitle();
+        dto.coverImageId = v.getCoverImageId();
+        dto.paid = v.getPrice() > 0;
+        dto.price = v.getPrice();
+        dto.author = v.getAuthor();
+        return dto;
     }
 }
@@ -0,0 +1,244 @@
+package org.example.storyreading.storyservice.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link ObjectStorage} on an S3-compatible bucket (AWS S3, or MinIO for local development).
+ * Bodies at or above {@code multipartThreshold}, or of unknown length, are sent as multipart uploads
+ * in {@code partSize} chunks so memory use stays bounded regardless of object size.
+ */
+public class S3ObjectStorage implements ObjectStorage, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(S3ObjectStorage.class);
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024; // S3 rejects smaller non-final parts
+
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final String bucket;
+    private final long multipartThreshold;
+    private final int partSize;
+
+    public S3ObjectStorage(String endpoint, String region, String bucket, String accessKey, String secretKey,
+                           boolean pathStyle, long multipartThreshold, int partSize, boolean createBucket) {
+        AwsCredentialsProvider credentials = accessKey == null || accessKey.isBlank()
+                ? DefaultCredentialsProvider.builder().build()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        S3Configuration s3Config = S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build();
+        var clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Config);
+        var presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(s3Config);
+        if (endpoint != null && !endpoint.isBlank()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        this.client = clientBuilder.build();
+        this.presigner = presignerBuilder.build();
+        this.bucket = bucket;
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        if (createBucket) {
+            ensureBucket();
+        }
+    }
+
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        try {
+            if (contentLength >= 0 && contentLength < multipartThreshold) {
+                client.putObject(b -> b.bucket(bucket).key(key).contentType(contentType),
+                        RequestBody.fromInputStream(content, contentLength));
+            } else {
+                multipartUpload(key, content, contentType);
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to upload " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void putFile(String key, Path file, String contentType) throws IOException {
+        long size = Files.size(file);
+        try {
+            if (size < multipartThreshold) {
+                client.putObject(b -> b.bucket(bucket).key(key).contentType(contentType), RequestBody.fromFile(file));
+            } else {
+                try (InputStream in = Files.newInputStream(file)) {
+                    multipartUpload(key, in, contentType);
+                }
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to upload " + key + ": " + e.getMessage(), e);
+        }
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        try {
+            return client.getObject(b -> b.bucket(bucket).key(key));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(b -> b.bucket(bucket).key(key));
+            StoredObject object = new StoredObject();
+            object.key = key;
+            object.size = head.contentLength();
+            object.lastModifiedMillis = head.lastModified() == null ? 0 : head.lastModified().toEpochMilli();
+            object.etag = head.eTag();
+            return Optional.of(object);
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            // HEAD responses carry no body, so a missing key can surface as a bare 404
+            if (e.statusCode() == 404) return Optional.empty();
+            throw new IOException("Failed to stat " + key + ": " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("Failed to stat " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(b -> b.bucket(bucket).key(key));
+        } catch (SdkException e) {
+            throw new IOException("Failed to delete " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<String> list(String prefix) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try {
+            for (S3Object object : client.listObjectsV2Paginator(b -> b.bucket(bucket).prefix(prefix)).contents()) {
+                keys.add(object.key());
+            }
+        } catch (SdkException e) {
+            throw new IOException("Failed to list " + prefix + ": " + e.getMessage(), e);
+        }
+        return keys;
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<URI> presignGet(String key, Duration ttl) {
+        var request = presigner.presignGetObject(b -> b.signatureDuration(ttl)
+                .getObjectRequest(g -> g.bucket(bucket).key(key)));
+        return Optional.of(toUri(request.url()));
+    }
+
+    @Override
+    public Optional<URI> presignPut(String key, String contentType, Duration ttl) {
+        var request = presigner.presignPutObject(b -> b.signatureDuration(ttl)
+                .putObjectRequest(p -> p.bucket(bucket).key(key).contentType(contentType)));
+        return Optional.of(toUri(request.url()));
+    }
+
+    @Override
+    public void close() {
+        presigner.close();
+        client.close();
+    }
+
+    private void multipartUpload(String key, InputStream content, String contentType) throws IOException {
+        String uploadId = client.createMultipartUpload(b -> b.bucket(bucket).key(key).contentType(contentType)).uploadId();
+        List<CompletedPart> parts = new ArrayList<>();
+        byte[] buffer = new byte[partSize];
+        try {
+            int partNumber = 1;
+            while (true) {
+                int filled = content.readNBytes(buffer, 0, buffer.length);
+                if (filled == 0 && partNumber > 1) break;
+                int number = partNumber;
+                String etag = client.uploadPart(b -> b.bucket(bucket).key(key).uploadId(uploadId).partNumber(number),
+                        RequestBody.fromBytes(filled == buffer.length ? buffer : Arrays.copyOf(buffer, filled))).eTag();
+                parts.add(CompletedPart.builder().partNumber(number).eTag(etag).build());
+                partNumber++;
+                if (filled < buffer.length) break;
+            }
+            client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            // Abort so the bucket is not billed for orphaned parts
+            try {
+                client.abortMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId));
+            } catch (SdkException abortFailure) {
+                log.warn("Failed to abort multipart upload {} for {}: {}", uploadId, key, abortFailure.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    private void ensureBucket() {
+        try {
+            client.headBucket(b -> b.bucket(bucket));
+        } catch (NoSuchBucketException e) {
+            client.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+            log.info("Created storage bucket {}", bucket);
+        } catch (S3Exception e) {
+            if (e.statusCode() != 404) throw e;
+            client.createBucket(CreateBucketRequest.builder().bucket(bucket).build());
+            log.info("Created storage bucket {}", bucket);
+        }
+    }
+
+    private static URI toUri(URL url) {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Presigner returned an invalid URL: " + url, e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.storyreading.storyservice.util;
+
+import com.luciad.imageio.webp.WebPWriteParam;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Produces width-bucketed derivatives of an uploaded image next to the original
+ * ("001.jpg" -> "001.w640.webp") plus a tiny inline JPEG used as a blur placeholder.
+ * Falls back to JPEG derivatives when no WebP ImageIO writer is available on this platform.
+ */
+public class ImageDerivativeGenerator {
+
+    private static final int PLACEHOLDER_WIDTH = 16;
+
+    private final int[] widths;
+    private final float quality;
+    private final int webpMethod;
+
+    /**
+     * @param webpMethod libwebp effort 0 (fastest) .. 6 (smallest); 2 encodes ~2x faster than the default 4
+     *                   for about 1-2% larger files on manga pages
+     */
+    public ImageDerivativeGenerator(int[] widths, float quality, int webpMethod) {
+        this.widths = widths.clone();
+        Arrays.sort(this.widths);
+        this.quality = quality;
+        this.webpMethod = webpMethod;
+    }
+
+    public static class Result {
+        public int width;
+        public int height;
+        public String format;
+        public List<Integer> variantWidths = new ArrayList<>();
+        public String placeholder;
+        public long bytesWritten;
+    }
+
+    /**
+     * @return derivative metadata, or null when the source is not a decodable image
+     */
+    public Result generate(Path source) throws IOException {
+        BufferedImage original = ImageIO.read(source.toFile());
+        if (original == null) {
+            return null;
+        }
+        String format = webpSupported() ? "webp" : "jpg";
+
+        Result result = new Result();
+        result.width = original.getWidth();
+        result.height = original.getHeight();
+        result.format = format;
+
+        // Largest bucket first, each smaller bucket is scaled from the previous one instead of the original
+        BufferedImage source2x = original;
+        for (int i = widths.length - 1; i >= 0; i--) {
+            int width = widths[i];
+            // Never upscale: a bucket at or above the original width adds nothing over the original
+            if (width >= original.getWidth()) continue;
+            BufferedImage scaled = scale(source2x, width);
+            source2x = scaled;
+            Path target = variantPath(source, width, format);
+            Path partial = target.resolveSibling(target.getFileName() + ".part");
+            byte[] encoded = encode(scaled, format, quality);
+            Files.write(partial, encoded);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            result.variantWidths.add(0, width);
+            result.bytesWritten += encoded.length;
+        }
+
+        byte[] tiny = encode(scale(source2x, Math.min(PLACEHOLDER_WIDTH, source2x.getWidth())), "jpg", 0.5f);
+        result.placeholder = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(tiny);
+        return result;
+    }
+
+    public static Path variantPath(Path original, int width, String format) {
+        return original.resolveSibling(baseName(original.getFileName().toString()) + ".w" + width + "." + format);
+    }
+
+    public static String variantUrl(String originalUrl, int width, String format) {
+        int slash = originalUrl.lastIndexOf('/');
+        String dir = originalUrl.substring(0, slash + 1);
+        return dir + baseName(originalUrl.substring(slash + 1)) + ".w" + width + "." + format;
+    }
+
+    // Storage key prefix shared by every derivative of an original (all widths and formats)
+    public static String variantKeyPrefix(String originalKey) {
+        int slash = originalKey.lastIndexOf('/');
+        return originalKey.substring(0, slash + 1) + baseName(originalKey.substring(slash + 1)) + ".w";
+    }
+
+    public static boolean webpSupported() {
+        return ImageIO.getImageWritersByMIMEType("image/webp").hasNext();
+    }
+
+    private static String baseName(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot > 0 ? filename.substring(0, dot) : filename;
+    }
+
+    private static BufferedImage scale(BufferedImage src, int targetWidth) {
+        int targetHeight = Math.max(1, Math.round(src.getHeight() * (targetWidth / (float) src.getWidth())));
+        BufferedImage current = src;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        // Halve repeatedly before the final step; a single bilinear pass over a large ratio aliases badly
+        do {
+            w = Math.max(targetWidth, w / 2);
+            h = Math.max(targetHeight, h / 2);
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String format, float quality) throws IOException {
+        Iterator<ImageWriter> writers = "webp".equals(format)
+                ? ImageIO.getImageWritersByMIMEType("image/webp")
+                : ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0) {
+                    param.setCompressionType(types[0]);
+                    for (String type : types) {
+                        if ("Lossy".equalsIgnoreCase(type)) param.setCompressionType(type);
+                    }
+                }
+                param.setCompressionQuality(quality);
+            }
+            if (param instanceof WebPWriteParam webpParam) {
+                webpParam.setMethod(webpMethod);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
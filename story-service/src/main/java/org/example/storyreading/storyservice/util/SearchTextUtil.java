@@ -0,0 +1,44 @@
+package org.example.storyreading.storyservice.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class SearchTextUtil {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern NON_WORD = Pattern.compile("[^a-z0-9]+");
+
+    /**
+     * Lower-case and strip diacritics so "Đấu Phá" and "dau pha" compare equal.
+     * Vietnamese đ/Đ has no combining form and is mapped to d explicitly.
+     */
+    public static String normalize(String input) {
+        if (input == null) return "";
+        String s = Normalizer.normalize(input, Normalizer.Form.NFD);
+        s = COMBINING_MARKS.matcher(s).replaceAll("");
+        s = s.replace('đ', 'd').replace('Đ', 'D');
+        s = s.toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(s).replaceAll(" ").trim();
+    }
+
+    /**
+     * Build a prefix tsquery ("dau:* & pha:*") from already-normalized text.
+     * Returns an empty string when the input has no searchable tokens.
+     */
+    public static String toPrefixTsQuery(String normalized) {
+        if (normalized == null || normalized.isEmpty()) return "";
+        return Arrays.stream(NON_WORD.split(normalized))
+                .filter(token -> !token.isEmpty())
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    // Escape LIKE wildcards so user input is matched literally (Postgres default escape is backslash)
+    public static String escapeLike(String input) {
+        return input.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.storyreading.storyservice.bench;
+
+import org.example.storyreading.storyservice.util.ImageDerivativeGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Throughput benchmark for the derivative pipeline on a sample chapter.
+ * Not a unit test (surefire ignores it); run with:
+ *
+ *   mvn -q test-compile
+ *   java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *       org.example.storyreading.storyservice.bench.ImageDerivativeBenchmark public/images/chua-nguyen-thuy-22220/1 2 3 2
+ *
+ * Originals are copied to a temp directory first so the sample chapter is left untouched.
+ */
+public class ImageDerivativeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path chapterDir = Path.of(args.length > 0 ? args[0] : "public/images/chua-nguyen-thuy-22220/1");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int method = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+        List<Path> pages;
+        try (Stream<Path> files = Files.list(chapterDir)) {
+            pages = files.filter(p -> p.getFileName().toString().matches("\\d+\\.(jpg|jpeg|png)"))
+                    .sorted().toList();
+        }
+        long inputBytes = 0;
+        for (Path p : pages) inputBytes += Files.size(p);
+        System.out.printf("Chapter %s: %d pages, %.1f MB, %d threads, webp method %d, webp=%s%n",
+                chapterDir, pages.size(), inputBytes / 1e6, threads, method, ImageDerivativeGenerator.webpSupported());
+
+        ImageDerivativeGenerator generator = new ImageDerivativeGenerator(new int[]{320, 640, 1080}, 0.8f, method);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round <= rounds; round++) {
+                Path work = Files.createTempDirectory("derivative-bench");
+                List<Path> copies = new ArrayList<>();
+                for (Path p : pages) copies.add(Files.copy(p, work.resolve(p.getFileName()), StandardCopyOption.REPLACE_EXISTING));
+
+                long start = System.nanoTime();
+                List<Future<ImageDerivativeGenerator.Result>> results = new ArrayList<>();
+                for (Path copy : copies) results.add(pool.submit(() -> generator.generate(copy)));
+                long outputBytes = 0;
+                for (Future<ImageDerivativeGenerator.Result> r : results) {
+                    ImageDerivativeGenerator.Result result = r.get();
+                    if (result != null) outputBytes += result.bytesWritten;
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                // Round 0 warms up the JIT and the native encoder
+                if (round > 0) {
+                    System.out.printf("round %d: %.2f s, %.1f pages/s, %.1f MB/s in, derivatives %.1f MB (%.0f%% of input)%n",
+                            round, seconds, pages.size() / seconds, inputBytes / 1e6 / seconds,
+                            outputBytes / 1e6, 100.0 * outputBytes / inputBytes);
+                }
+                deleteRecursively(work);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path p : walk.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+}
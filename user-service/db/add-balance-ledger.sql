@@ -0,0 +1,39 @@
+-- SQL: append-only balance ledger with idempotency keys, plus periodic balance snapshots
+-- Run this against your PostgreSQL database for the user-service schema
+
+-- 1) Ledger (Hibernate ddl-auto=update creates the same shape; IF NOT EXISTS keeps this idempotent)
+CREATE TABLE IF NOT EXISTS balance_ledger (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    amount NUMERIC(38,2) NOT NULL,
+    entry_type VARCHAR(20) NOT NULL,
+    transaction_id VARCHAR(100) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_balance_ledger_transaction_id UNIQUE (transaction_id)
+);
+CREATE INDEX IF NOT EXISTS idx_balance_ledger_user_id ON balance_ledger(user_id, id);
+
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    balance NUMERIC(38,2) NOT NULL,
+    last_entry_id BIGINT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_balance_snapshots_user_entry ON balance_snapshots(user_id, last_entry_id);
+
+-- 2) Opening entries so the ledger sums to the balances that existed before it
+INSERT INTO balance_ledger (user_id, amount, entry_type, transaction_id, created_at)
+SELECT u.id, u.balance, 'OPENING', 'OPENING-' || u.id, CURRENT_TIMESTAMP
+FROM users u
+WHERE u.balance <> 0
+ON CONFLICT (transaction_id) DO NOTHING;
+
+-- 3) Reconciliation: users whose balance differs from latest snapshot + later ledger entries (should return no rows)
+-- SELECT u.id, u.balance, coalesce(s.balance, 0) + coalesce(sum(l.amount), 0) AS ledger_balance
+-- FROM users u
+-- LEFT JOIN LATERAL (SELECT balance, last_entry_id FROM balance_snapshots bs WHERE bs.user_id = u.id
+--                    ORDER BY last_entry_id DESC LIMIT 1) s ON true
+-- LEFT JOIN balance_ledger l ON l.user_id = u.id AND l.id > coalesce(s.last_entry_id, 0)
+-- GROUP BY u.id, u.balance, s.balance
+-- HAVING u.balance <> coalesce(s.balance, 0) + coalesce(sum(l.amount), 0);
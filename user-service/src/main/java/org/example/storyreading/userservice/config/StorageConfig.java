@@ -0,0 +1,67 @@
+package org.example.storyreading.userservice.config;
+
+import org.example.storyreading.userservice.storage.LocalFileSystemStorage;
+import org.example.storyreading.userservice.storage.ObjectStorage;
+import org.example.storyreading.userservice.storage.S3ObjectStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class StorageConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageConfig.class);
+
+    // Default: files under the shared services/public directory, served by this service
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "local", matchIfMissing = true)
+    public ObjectStorage localObjectStorage(@Value("${storage.public-dir:public}") String publicDir) {
+        LocalFileSystemStorage storage = new LocalFileSystemStorage(resolvePublicDir(publicDir));
+        log.info("Using local media storage at {}", storage.getRoot());
+        return storage;
+    }
+
+    // S3 or MinIO; avatar requests are redirected to presigned URLs
+    @Bean
+    @ConditionalOnProperty(name = "storage.backend", havingValue = "s3")
+    public ObjectStorage s3ObjectStorage(@Value("${storage.s3.endpoint:}") String endpoint,
+                                         @Value("${storage.s3.region:us-east-1}") String region,
+                                         @Value("${storage.s3.bucket:user-media}") String bucket,
+                                         @Value("${storage.s3.access-key:}") String accessKey,
+                                         @Value("${storage.s3.secret-key:}") String secretKey,
+                                         @Value("${storage.s3.path-style:true}") boolean pathStyle,
+                                         @Value("${storage.s3.multipart-threshold:16777216}") long multipartThreshold,
+                                         @Value("${storage.s3.part-size:8388608}") int partSize,
+                                         @Value("${storage.s3.create-bucket:false}") boolean createBucket) {
+        log.info("Using S3 media storage: bucket={} endpoint={}", bucket, endpoint.isBlank() ? "aws" : endpoint);
+        return new S3ObjectStorage(endpoint, region, bucket, accessKey, secretKey, pathStyle,
+                multipartThreshold, partSize, createBucket);
+    }
+
+    // Relative paths always resolve to services/public, regardless of where the service is started from
+    static Path resolvePublicDir(String publicDir) {
+        Path relativePath = Path.of(publicDir);
+        if (relativePath.isAbsolute()) {
+            return relativePath;
+        }
+        Path currentDir = Path.of("").toAbsolutePath();
+        if (currentDir.endsWith(Path.of("user-service"))) {
+            return currentDir.getParent().resolve("public").normalize();
+        }
+        Path tempDir = currentDir;
+        while (tempDir != null && !tempDir.endsWith(Path.of("services"))) {
+            tempDir = tempDir.getParent();
+        }
+        if (tempDir != null) {
+            return tempDir.resolve("public").normalize();
+        }
+        Path fallback = currentDir.resolve(publicDir).normalize();
+        log.warn("Could not find services directory, using fallback path: {}", fallback);
+        return fallback;
+    }
+}
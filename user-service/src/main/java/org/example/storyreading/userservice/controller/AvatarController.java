@@ -3,18 +3,16 @@ package org.example.storyreading.userservice.controller;
 import org.example.storyreading.userservice.entity.UserEntity;
 import org.example.storyreading.userservice.repository.UserRepository;
 import org.example.storyreading.userservice.security.JwtUtils;
+import org.example.storyreading.userservice.storage.ObjectStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.Optional;
@@ -25,62 +23,18 @@ import java.util.UUID;
 public class AvatarController {
 
     private static final Logger log = LoggerFactory.getLogger(AvatarController.class);
-    private final Path AVATARS_DIR;
+    private static final String AVATAR_URL_PREFIX = "/public/avatars/";
     private final UserRepository userRepository;
     private final JwtUtils jwtUtils;
+    private final ObjectStorage storage;
 
     public AvatarController(
             UserRepository userRepository,
             JwtUtils jwtUtils,
-            @Value("${storage.public-dir:public}") String publicDir) {
+            ObjectStorage storage) {
         this.userRepository = userRepository;
         this.jwtUtils = jwtUtils;
-        
-        // Resolve public directory - always resolve to services/public
-        Path publicPath;
-        Path relativePath = Path.of(publicDir);
-        if (relativePath.isAbsolute()) {
-            publicPath = relativePath;
-        } else {
-            // Get the directory where the JAR/classes are running from
-            Path currentDir = Path.of("").toAbsolutePath();
-            log.info("AvatarController - Current working directory: {}", currentDir);
-            
-            // Always resolve to services/public regardless of where we're running from
-            if (currentDir.endsWith(Path.of("user-service"))) {
-                // Go up to services directory, then to public
-                publicPath = currentDir.getParent().resolve("public").normalize();
-            } else if (currentDir.endsWith(Path.of("services"))) {
-                // Already in services directory
-                publicPath = currentDir.resolve("public").normalize();
-            } else {
-                // Try to find services directory by going up
-                Path tempDir = currentDir;
-                while (tempDir != null && !tempDir.endsWith(Path.of("services"))) {
-                    tempDir = tempDir.getParent();
-                    if (tempDir == null) break;
-                }
-                if (tempDir != null && tempDir.endsWith(Path.of("services"))) {
-                    publicPath = tempDir.resolve("public").normalize();
-                } else {
-                    // Fallback: resolve from current directory
-                    publicPath = currentDir.resolve(publicDir).normalize();
-                    log.warn("Could not find services directory, using fallback path: {}", publicPath);
-                }
-            }
-        }
-        
-        this.AVATARS_DIR = publicPath.resolve("avatars");
-        try {
-            Files.createDirectories(AVATARS_DIR);
-            log.info("AvatarController using avatars dir: {}", this.AVATARS_DIR.toAbsolutePath());
-            log.info("Avatars directory exists: {}", Files.exists(this.AVATARS_DIR));
-            if (Files.exists(this.AVATARS_DIR)) {
-                log.info("Avatars directory is writable: {}", Files.isWritable(this.AVATARS_DIR));
-            }
-        } catch (IOException e) {
-            log.error("Failed to create avatars directory", e);
-        }
+        this.storage = storage;
     }
 
     private Long extractUserIdFromHeader(String authHeader) {
@@ -151,12 +105,6 @@ public class AvatarController {
         UserEntity user = userOpt.get();
 
         try {
-            // Ensure directory exists
-            if (!Files.exists(AVATARS_DIR)) {
-                Files.createDirectories(AVATARS_DIR);
-                log.info("Created avatars directory: {}", AVATARS_DIR.toAbsolutePath());
-            }
-
             // Generate unique filename
             String originalFilename = file.getOriginalFilename();
             String ext = getExtension(originalFilename);
@@ -173,40 +121,17 @@ public class AvatarController {
                 }
             }
             String filename = userId + "_" + UUID.randomUUID().toString().substring(0, 8) + "." + ext;
-            Path target = AVATARS_DIR.resolve(filename);
 
-            // Delete old avatar file if exists
-            String oldAvatarUrl = user.getAvatarUrl();
-            if (oldAvatarUrl != null && oldAvatarUrl.startsWith("/public/avatars/")) {
-                try {
-                    String oldFilename = oldAvatarUrl.substring(oldAvatarUrl.lastIndexOf('/') + 1);
-                    Path oldFile = AVATARS_DIR.resolve(oldFilename);
-                    if (Files.exists(oldFile)) {
-                        Files.delete(oldFile);
-                        log.info("✅ Deleted old avatar file: {}", oldFilename);
-                    }
-                } catch (IOException e) {
-                    log.warn("⚠️ Failed to delete old avatar file: {}", e.getMessage());
-                }
+            // Save file (streamed straight to the storage backend)
+            try (InputStream in = file.getInputStream()) {
+                storage.put("avatars/" + filename, in, fileSize, contentType);
             }
+            log.info("✅ Avatar stored: avatars/{} ({} bytes)", filename, fileSize);
 
-            // Save file
-            log.info("📁 Saving avatar file to: {}", target.toAbsolutePath());
-            log.info("📁 AVATARS_DIR: {}", AVATARS_DIR.toAbsolutePath());
-            log.info("📁 Target file path: {}", target.toAbsolutePath());
-            log.info("📁 Directory exists before save: {}", Files.exists(AVATARS_DIR));
-            
-            Files.copy(file.getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
-            
-            // Verify file was saved
-            if (Files.exists(target)) {
-                long savedFileSize = Files.size(target);
-                log.info("✅ File saved successfully! Size: {} bytes", savedFileSize);
-            } else {
-                log.error("❌ File was not saved! Target path: {}", target.toAbsolutePath());
-            }
-            
-            String url = "/public/avatars/" + filename;
+            // The new avatar is in place before the old one goes, so a failed upload never leaves the user without one
+            deleteStoredAvatar(user.getAvatarUrl());
+
+            String url = AVATAR_URL_PREFIX + filename;
 
             // Update user avatar
             user.setAvatarUrl(url);
@@ -247,18 +172,7 @@ public class AvatarController {
         String oldAvatarUrl = user.getAvatarUrl();
 
         // Delete old avatar file if exists
-        if (oldAvatarUrl != null && oldAvatarUrl.startsWith("/public/avatars/")) {
-            try {
-                String filename = oldAvatarUrl.substring(oldAvatarUrl.lastIndexOf('/') + 1);
-                Path oldFile = AVATARS_DIR.resolve(filename);
-                if (Files.exists(oldFile)) {
-                    Files.delete(oldFile);
-                    log.info("✅ Deleted old avatar file: {}", filename);
-                }
-            } catch (IOException e) {
-                log.warn("⚠️ Failed to delete old avatar file: {}", e.getMessage());
-            }
-        }
+        deleteStoredAvatar(oldAvatarUrl);
 
         // Clear avatar URL
         user.setAvatarUrl(null);
@@ -268,5 +182,17 @@ public class AvatarController {
         log.info("✅ Successfully deleted avatar for user {}", userId);
         return ResponseEntity.ok(Map.of("message", "Đã xóa avatar"));
     }
-}
 
+    private void deleteStoredAvatar(String avatarUrl) {
+        if (avatarUrl == null || !avatarUrl.startsWith(AVATAR_URL_PREFIX)) {
+            return;
+        }
+        String filename = avatarUrl.substring(avatarUrl.lastIndexOf('/') + 1);
+        try {
+            storage.delete("avatars/" + filename);
+            log.info("✅ Deleted old avatar file: {}", filename);
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to delete old avatar file: {}", e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.storyreading.userservice.controller;
 
+import org.example.storyreading.userservice.storage.ObjectStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,44 +16,24 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/public/avatars")
 public class AvatarFileController {
 
     private static final Logger log = LoggerFactory.getLogger(AvatarFileController.class);
-    private final Path AVATARS_DIR;
+    private final ObjectStorage storage;
+    private final Duration presignTtl;
 
-    public AvatarFileController(@Value("${storage.public-dir:public}") String publicDir) {
-        // Resolve public directory - always resolve from user-service directory
-        Path publicPath;
-        Path relativePath = Paths.get(publicDir);
-        if (relativePath.isAbsolute()) {
-            publicPath = relativePath;
-        } else {
-            // Get the directory where the JAR/classes are running from
-            Path currentDir = Paths.get("").toAbsolutePath();
-            log.info("AvatarFileController - Current working directory: {}", currentDir);
-            
-            // If running from user-service directory, go up one level to services, then to public
-            if (currentDir.endsWith("user-service")) {
-                // Go up to services directory, then resolve publicDir (which is ../public)
-                publicPath = currentDir.getParent().resolve("public").normalize();
-            } else if (currentDir.endsWith("services")) {
-                // Already in services directory
-                publicPath = currentDir.resolve("public").normalize();
-            } else {
-                // Try to resolve from current directory
-                publicPath = currentDir.resolve(publicDir).normalize();
-            }
-        }
-        
-        this.AVATARS_DIR = publicPath.resolve("avatars");
-        log.info("AvatarFileController using avatars dir: {}", this.AVATARS_DIR.toAbsolutePath());
-        log.info("Avatars directory exists: {}", Files.exists(this.AVATARS_DIR));
+    public AvatarFileController(ObjectStorage storage,
+                                @Value("${storage.presign-ttl-minutes:60}") long presignTtlMinutes) {
+        this.storage = storage;
+        this.presignTtl = Duration.ofMinutes(presignTtlMinutes);
     }
 
     @GetMapping("/{filename:.+}")
@@ -63,22 +44,29 @@ public class AvatarFileController {
                 log.warn("Invalid filename requested: {}", filename);
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
             }
+            String key = "avatars/" + filename;
+
+            Optional<Path> local = storage.localPath(key);
+            if (local.isEmpty()) {
+                // Remote backend: let the client fetch the bytes from the bucket directly
+                Optional<URI> target = storage.presignGet(key, presignTtl);
+                if (target.isEmpty() || !storage.exists(key)) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+                }
+                return ResponseEntity.status(HttpStatus.FOUND)
+                        .location(target.get())
+                        .header(HttpHeaders.CACHE_CONTROL, "private, max-age=" + presignTtl.toSeconds() / 2)
+                        .build();
+            }
 
-            Path filePath = AVATARS_DIR.resolve(filename);
-            
+            Path filePath = local.get();
             if (!Files.exists(filePath) || !Files.isRegularFile(filePath)) {
                 log.warn("Avatar file not found: {}", filePath);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
 
-            // Check if file is within avatars directory (prevent path traversal)
-            if (!filePath.normalize().startsWith(AVATARS_DIR.normalize())) {
-                log.warn("Path traversal attempt detected: {}", filename);
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
-            }
-
             Resource resource = new FileSystemResource(filePath);
-            
+
             // Determine content type
             String contentType = Files.probeContentType(filePath);
             if (contentType == null) {
@@ -101,11 +89,10 @@ public class AvatarFileController {
                     .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
                     .header(HttpHeaders.CACHE_CONTROL, "public, max-age=3600")
                     .body(resource);
-                    
+
         } catch (IOException e) {
             log.error("Error serving avatar file {}: {}", filename, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 }
-
@@ -0,0 +1,70 @@
+package org.example.storyreading.userservice.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Append-only history of every balance change; users.balance is the running total of these rows
+@Entity
+@Table(name = "balance_ledger",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_balance_ledger_transaction_id", columnNames = {"transaction_id"})
+        },
+        indexes = {
+                @Index(name = "idx_balance_ledger_user_id", columnList = "user_id, id")
+        })
+public class BalanceLedgerEntity {
+
+    public enum EntryType {
+        OPENING,   // Số dư có sẵn trước khi có ledger
+        DEPOSIT,   // Nạp tiền
+        PURCHASE   // Mua truyện
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Positive for credits, negative for debits
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entry_type", nullable = false, length = 20)
+    private EntryType entryType;
+
+    // Idempotency key: the payment-service transaction id, so a retried call or redelivered event applies once
+    @Column(name = "transaction_id", nullable = false, length = 100)
+    private String transactionId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public EntryType getEntryType() {
+        return entryType;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.storyreading.userservice.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Balance of a user up to and including ledger entry lastEntryId; audits replay only the entries after it
+@Entity
+@Table(name = "balance_snapshots",
+        indexes = {
+                @Index(name = "idx_balance_snapshots_user_entry", columnList = "user_id, last_entry_id")
+        })
+public class BalanceSnapshotEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal balance;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private Long lastEntryId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt = Instant.now();
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public Long getLastEntryId() {
+        return lastEntryId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -3,13 +3,9 @@ package org.example.storyreading.userservice.listener;
 
 import org.example.storyreading.userservice.config.RabbitMQConfig;
 import org.example.storyreading.userservice.dto.PaymentEvent;
-import org.example.storyreading.userservice.entity.UserEntity;
-import org.example.storyreading.userservice.repository.UserRepository;
+import org.example.storyreading.userservice.service.BalanceService;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.math.BigDecimal;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,18 +14,17 @@ import org.slf4j.LoggerFactory;
 
 public class PaymentEventListener {
 
-    private final UserRepository userRepository;
+    private final BalanceService balanceService;
 
     // Replace Lombok @Slf4j with explicit logger so compilation doesn't rely on Lombok annotation processing
     private static final Logger log = LoggerFactory.getLogger(PaymentEventListener.class);
 
     //consstructor
-    public PaymentEventListener(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public PaymentEventListener(BalanceService balanceService) {
+        this.balanceService = balanceService;
     }
 
     @RabbitListener(queues = RabbitMQConfig.PAYMENT_QUEUE)
-    @Transactional
     public void handlePaymentSuccessEvent(PaymentEvent event) {
         log.info("💰 ========== Payment event received ==========");
         log.info("💰 UserId: {}", event.getUserId());
@@ -75,28 +70,11 @@ public class PaymentEventListener {
             if (isSuccess && isDeposit) {
                 log.info("💰 Processing DEPOSIT payment for user: {}", event.getUserId());
                 
-                UserEntity user = userRepository.findById(event.getUserId())
-                        .orElseThrow(() -> {
-                            log.error("❌ User not found with id: {}", event.getUserId());
-                            return new RuntimeException("User not found: " + event.getUserId());
-                        });
-
-                BigDecimal oldBalance = user.getBalance();
-                log.info("💰 Current balance for user {}: {}", event.getUserId(), oldBalance);
-                log.info("💰 Amount to add: {}", event.getAmount());
-                
-                BigDecimal newBalance = oldBalance.add(event.getAmount());
-                user.setBalance(newBalance);
-
-                userRepository.save(user);
-
-                log.info("✅ Balance updated successfully for user {}: {} -> {}",
-                        event.getUserId(), oldBalance, newBalance);
-                
-                // Verify the update
-                UserEntity verifyUser = userRepository.findById(event.getUserId()).orElse(null);
-                if (verifyUser != null) {
-                    log.info("✅ Verification - Current balance in DB: {}", verifyUser.getBalance());
+                // Ledger entry + atomic increment; a redelivered event hits the transaction id and is skipped
+                boolean credited = balanceService.creditDeposit(
+                        event.getUserId(), event.getAmount(), event.getTransactionId());
+                if (credited) {
+                    log.info("✅ Balance credited for user {}: +{}", event.getUserId(), event.getAmount());
                 }
             } else {
                 log.info("⚠️ Skipping event - Status: '{}', PaymentType: '{}' (Expected: Status='SUCCESS', PaymentType='DEPOSIT')", 
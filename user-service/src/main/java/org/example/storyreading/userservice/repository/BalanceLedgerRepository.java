@@ -0,0 +1,39 @@
+package org.example.storyreading.userservice.repository;
+
+import org.example.storyreading.userservice.entity.BalanceLedgerEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Repository
+public interface BalanceLedgerRepository extends JpaRepository<BalanceLedgerEntity, Long> {
+
+    // Returns 0 when the transaction id was already recorded, i.e. the change has been applied before
+    @Modifying
+    @Query(value = "INSERT INTO balance_ledger (user_id, amount, entry_type, transaction_id, created_at) " +
+            "VALUES (:userId, :amount, :entryType, :transactionId, now()) " +
+            "ON CONFLICT (transaction_id) DO NOTHING", nativeQuery = true)
+    int append(@Param("userId") Long userId,
+               @Param("amount") BigDecimal amount,
+               @Param("entryType") String entryType,
+               @Param("transactionId") String transactionId);
+
+    // Rolls every user's latest snapshot forward by the ledger entries written since, in one statement.
+    // Entries younger than :settledBefore are left for the next run so a slow commit with a lower id is not skipped.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO balance_snapshots (user_id, balance, last_entry_id, created_at) " +
+            "SELECT l.user_id, coalesce(s.balance, 0) + sum(l.amount), max(l.id), now() " +
+            "FROM balance_ledger l " +
+            "LEFT JOIN LATERAL (SELECT bs.balance, bs.last_entry_id FROM balance_snapshots bs " +
+            "    WHERE bs.user_id = l.user_id ORDER BY bs.last_entry_id DESC LIMIT 1) s ON true " +
+            "WHERE l.id > coalesce(s.last_entry_id, 0) AND l.created_at < :settledBefore " +
+            "GROUP BY l.user_id, s.balance", nativeQuery = true)
+    int snapshotBalances(@Param("settledBefore") Instant settledBefore);
+}
@@ -1,12 +1,12 @@
 package org.example.storyreading.userservice.repository;
 
-import jakarta.persistence.LockModeType;
 import org.example.storyreading.userservice.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
@@ -18,7 +18,15 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
     boolean existsByUsernameAndIdNot(String username, Long id);
     boolean existsByEmailAndIdNot(String email, Long id);
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT u FROM UserEntity u WHERE u.id = :userId")
-    Optional<UserEntity> findByIdWithLock(@Param("userId") Long userId);
+    // Conditional single-statement debit: 0 rows means insufficient balance (or unknown user), no lock is held beyond it
+    @Modifying
+    @Query("UPDATE UserEntity u SET u.balance = u.balance - :amount WHERE u.id = :userId AND u.balance >= :amount")
+    int debitIfSufficient(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("UPDATE UserEntity u SET u.balance = u.balance + :amount WHERE u.id = :userId")
+    int credit(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Query("SELECT u.balance FROM UserEntity u WHERE u.id = :userId")
+    Optional<BigDecimal> findBalanceById(@Param("userId") Long userId);
 }
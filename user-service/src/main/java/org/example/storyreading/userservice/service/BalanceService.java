@@ -1,49 +1,98 @@
 package org.example.storyreading.userservice.service;
 
-import org.example.storyreading.userservice.entity.UserEntity;
+import org.example.storyreading.userservice.entity.BalanceLedgerEntity;
+import org.example.storyreading.userservice.repository.BalanceLedgerRepository;
 import org.example.storyreading.userservice.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 
+/**
+ * Balance changes are recorded twice in one short transaction: an append-only ledger row keyed by the
+ * payment transaction id, and a single conditional UPDATE of users.balance. The ledger insert makes retries
+ * idempotent; the UPDATE checks and changes the balance atomically, so no row lock is held across calls.
+ */
 @Service
 public class BalanceService {
 
     private static final Logger log = LoggerFactory.getLogger(BalanceService.class);
 
     private final UserRepository userRepository;
+    private final BalanceLedgerRepository balanceLedgerRepository;
+    private final Duration snapshotSettle;
 
     // Constructor thay thế cho @RequiredArgsConstructor
-    public BalanceService(UserRepository userRepository) {
+    public BalanceService(UserRepository userRepository,
+                          BalanceLedgerRepository balanceLedgerRepository,
+                          @Value("${user.balance.snapshot-settle-seconds:60}") long snapshotSettleSeconds) {
         this.userRepository = userRepository;
+        this.balanceLedgerRepository = balanceLedgerRepository;
+        this.snapshotSettle = Duration.ofSeconds(snapshotSettleSeconds);
     }
 
     @Transactional
     public void deductBalance(Long userId, BigDecimal amount, String transactionId) {
         log.info("Deducting balance for userId: {}, amount: {}, transactionId: {}",
                 userId, amount, transactionId);
+        validate(userId, amount, transactionId);
 
-        // SELECT FOR UPDATE - pessimistic lock to prevent concurrent modifications
-        UserEntity user = userRepository.findByIdWithLock(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-
-        BigDecimal currentBalance = user.getBalance();
-        log.info("Current balance for userId {}: {}", userId, currentBalance);
+        if (balanceLedgerRepository.append(userId, amount.negate(), BalanceLedgerEntity.EntryType.PURCHASE.name(), transactionId) == 0) {
+            log.info("Transaction {} already deducted, skipping", transactionId);
+            return;
+        }
 
-        // Check if balance is sufficient
-        if (currentBalance.compareTo(amount) < 0) {
+        if (userRepository.debitIfSufficient(userId, amount) == 0) {
+            // Throwing rolls back the ledger row as well
+            BigDecimal currentBalance = userRepository.findBalanceById(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
             log.error("Insufficient balance. Current: {}, Required: {}", currentBalance, amount);
             throw new RuntimeException("Insufficient balance. Current: " + currentBalance + ", Required: " + amount);
         }
+        log.info("Balance deducted successfully for userId {}", userId);
+    }
+
+    // Returns false when the deposit was already credited (redelivered event)
+    @Transactional
+    public boolean creditDeposit(Long userId, BigDecimal amount, String transactionId) {
+        validate(userId, amount, transactionId);
+
+        if (balanceLedgerRepository.append(userId, amount, BalanceLedgerEntity.EntryType.DEPOSIT.name(), transactionId) == 0) {
+            log.info("Deposit {} already credited, skipping", transactionId);
+            return false;
+        }
+        if (userRepository.credit(userId, amount) == 0) {
+            throw new RuntimeException("User not found: " + userId);
+        }
+        log.info("Credited {} to userId {} for transaction {}", amount, userId, transactionId);
+        return true;
+    }
 
-        // Deduct amount
-        BigDecimal newBalance = currentBalance.subtract(amount);
-        user.setBalance(newBalance);
+    // Periodic snapshot so audits and balance rebuilds replay only recent ledger entries
+    @Scheduled(initialDelayString = "${user.balance.snapshot-initial-delay-ms:60000}",
+            fixedDelayString = "${user.balance.snapshot-interval-ms:300000}")
+    public void snapshotBalances() {
+        int users = balanceLedgerRepository.snapshotBalances(Instant.now().minus(snapshotSettle));
+        if (users > 0) {
+            log.info("Snapshotted balances for {} users", users);
+        }
+    }
 
-        userRepository.save(user);
-        log.info("Balance deducted successfully. New balance for userId {}: {}", userId, newBalance);
+    private static void validate(Long userId, BigDecimal amount, String transactionId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId is required");
+        }
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be greater than 0");
+        }
+        if (transactionId == null || transactionId.isBlank()) {
+            throw new IllegalArgumentException("transactionId is required");
+        }
     }
 }
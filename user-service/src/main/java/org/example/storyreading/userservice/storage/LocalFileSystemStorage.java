@@ -0,0 +1,142 @@
+package org.example.storyreading.userservice.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * {@link ObjectStorage} on a local directory (the historical {@code public} folder).
+ * Writes go to a sibling {@code .part} file first and are renamed into place, so readers never see partial objects.
+ */
+public class LocalFileSystemStorage implements ObjectStorage {
+
+    private final Path root;
+
+    public LocalFileSystemStorage(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public void put(String key, InputStream content, long contentLength, String contentType) throws IOException {
+        Path target = resolve(key);
+        Path partial = partialFor(target);
+        try (OutputStream out = Files.newOutputStream(partial)) {
+            content.transferTo(out);
+        } catch (IOException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        moveIntoPlace(partial, target);
+    }
+
+    @Override
+    public void putFile(String key, Path file, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Staged on another filesystem: copy next to the target, then rename
+            Path partial = partialFor(target);
+            try {
+                Files.copy(file, partial, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException copyFailure) {
+                Files.deleteIfExists(partial);
+                throw copyFailure;
+            }
+            moveIntoPlace(partial, target);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) return Optional.empty();
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        StoredObject object = new StoredObject();
+        object.key = key;
+        object.size = attrs.size();
+        object.lastModifiedMillis = attrs.lastModifiedTime().toMillis();
+        return Optional.of(object);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public List<String> list(String prefix) throws IOException {
+        Path probe = resolve(prefix.isEmpty() ? "." : prefix);
+        // The prefix may end mid-name ("avatars/42_"), so walk its directory and filter on the full key
+        Path dir = prefix.endsWith("/") || prefix.isEmpty() ? probe : probe.getParent();
+        List<String> keys = new ArrayList<>();
+        if (dir == null || !Files.isDirectory(dir)) return keys;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.filter(Files::isRegularFile)
+                    .map(p -> root.relativize(p).toString().replace('\\', '/'))
+                    .filter(k -> k.startsWith(prefix) && !k.endsWith(".part"))
+                    .forEach(keys::add);
+        }
+        return keys;
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    @Override
+    public Optional<URI> presignGet(String key, Duration ttl) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<URI> presignPut(String key, String contentType, Duration ttl) {
+        return Optional.empty();
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Storage key escapes the storage root: " + key);
+        }
+        return path;
+    }
+
+    private static Path partialFor(Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        return target.resolveSibling(target.getFileName() + "." + UUID.randomUUID().toString().substring(0, 8) + ".part");
+    }
+
+    private static void moveIntoPlace(Path partial, Path target) throws IOException {
+        try {
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+    }
+}
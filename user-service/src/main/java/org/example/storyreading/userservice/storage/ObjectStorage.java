@@ -0,0 +1,62 @@
+package org.example.storyreading.userservice.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Storage SPI for user media (avatars).
+ * Keys are slash-separated paths relative to the public root, e.g. {@code avatars/42_1a2b3c4d.png},
+ * and are served under {@code /public/<key>}.
+ * <p>
+ * The backend is selected with {@code storage.backend} ({@code local} or {@code s3}); beans are declared in StorageConfig.
+ */
+public interface ObjectStorage {
+
+    /**
+     * Stream {@code content} into {@code key}, replacing any existing object.
+     * {@code contentLength} may be -1 when unknown; large or unknown-length bodies are sent as multipart uploads.
+     */
+    void put(String key, InputStream content, long contentLength, String contentType) throws IOException;
+
+    /**
+     * Store a local file under {@code key}. The file is consumed: it is moved (local backend) or uploaded and
+     * deleted (remote backends), so callers can stage uploads in a temp file and hand them over.
+     */
+    void putFile(String key, Path file, String contentType) throws IOException;
+
+    /** Open the object for reading. Throws {@link java.nio.file.NoSuchFileException} if it does not exist. */
+    InputStream get(String key) throws IOException;
+
+    Optional<StoredObject> stat(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+
+    /** Delete the object; missing keys are ignored. */
+    void delete(String key) throws IOException;
+
+    /** Keys starting with {@code prefix} (not a directory listing: {@code "avatars/42_"} matches {@code "avatars/42_1a2b3c4d.png"}). */
+    List<String> list(String prefix) throws IOException;
+
+    /** Path on the local filesystem when the backend is disk based, so callers can serve the file directly. */
+    Optional<Path> localPath(String key);
+
+    /** Time-limited URL a client can GET directly from the backend, or empty if the backend has none. */
+    Optional<URI> presignGet(String key, Duration ttl);
+
+    /** Time-limited URL a client can PUT the object to directly, or empty if the backend has none. */
+    Optional<URI> presignPut(String key, String contentType, Duration ttl);
+
+    class StoredObject {
+        public String key;
+        public long size;
+        public long lastModifiedMillis;
+        public String etag;
+    }
+}